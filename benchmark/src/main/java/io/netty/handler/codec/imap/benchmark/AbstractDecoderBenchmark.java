@@ -0,0 +1,93 @@
+package io.netty.handler.codec.imap.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.imap.ImapDecoderConfig;
+import io.netty.util.ReferenceCountUtil;
+
+/**
+ * Feeds a corpus through a decoder in an {@link EmbeddedChannel}, either in
+ * one buffer or split in fragments of {@link #fragment} bytes. The channel
+ * uses an unpooled heap allocator so that every buffer the decoder allocates
+ * shows up in the {@code -prof gc} allocation figures.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dio.netty.leakDetection.level=disabled")
+public abstract class AbstractDecoderBenchmark {
+
+	/**
+	 * Fragment size in bytes, 0 feeds the whole corpus at once.
+	 */
+	@Param({ "0", "1460", "1" })
+	public int fragment;
+
+	@Param({ "false", "true" })
+	public boolean zeroCopyLiterals;
+
+	@Param({ "false", "true" })
+	public boolean pooledMessages;
+
+	@Param({ "false", "true" })
+	public boolean structuredLists;
+
+	private byte[] input;
+	private EmbeddedChannel channel;
+
+	protected abstract byte[] corpus();
+
+	protected abstract ChannelHandler decoder(ImapDecoderConfig config);
+
+	@Setup
+	public void setup() {
+		input = corpus();
+		channel = new EmbeddedChannel(decoder(
+				new ImapDecoderConfig().zeroCopyLiterals(zeroCopyLiterals).pooledMessages(pooledMessages)
+						.structuredLists(structuredLists)));
+		channel.config().setAllocator(new UnpooledByteBufAllocator(false));
+	}
+
+	@TearDown
+	public void tearDown() {
+		channel.finishAndReleaseAll();
+	}
+
+	protected int feed(Blackhole bh) {
+		int step = fragment == 0 ? input.length : fragment;
+		for (int offset = 0; offset < input.length; offset += step) {
+			channel.writeInbound(Unpooled.wrappedBuffer(input, offset, Math.min(step, input.length - offset)));
+		}
+
+		int messages = 0;
+		Object msg;
+		while ((msg = channel.readInbound()) != null) {
+			bh.consume(msg);
+			ReferenceCountUtil.release(msg);
+			messages++;
+		}
+		if (messages == 0) {
+			throw new IllegalStateException("corpus did not decode into any message");
+		}
+		return messages;
+	}
+}
@@ -0,0 +1,95 @@
+package io.netty.handler.codec.imap.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.imap.ImapCommandDecoder;
+import io.netty.handler.codec.imap.ImapDecoderConfig;
+import io.netty.handler.codec.imap.ImapResponseDecoder;
+import io.netty.util.ReferenceCountUtil;
+
+/**
+ * Measures the heap retained by the decoder of an idle connection: many
+ * channels are opened, a short session up to IDLE goes through each one and
+ * the live heap is compared with as many channels holding a bare handler.
+ * Not a JMH benchmark, the figure is a size rather than a rate:
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar io.netty.handler.codec.imap.benchmark.DecoderFootprint [connections]
+ * </pre>
+ */
+public final class DecoderFootprint {
+
+	private static final byte[] CLIENT_SESSION = ("A1 LOGIN user secret\r\nA2 SELECT INBOX\r\nA3 IDLE\r\n")
+			.getBytes(StandardCharsets.US_ASCII);
+
+	private static final byte[] SERVER_SESSION = ("* OK [CAPABILITY IMAP4rev1 IDLE] ready\r\nA1 OK done\r\n"
+			+ "* FLAGS (\\Answered \\Flagged \\Deleted \\Seen \\Draft)\r\n* 172 EXISTS\r\n"
+			+ "* OK [UIDVALIDITY 3857529045] UIDs valid\r\nA2 OK [READ-WRITE] SELECT completed\r\n+ idling\r\n")
+					.getBytes(StandardCharsets.US_ASCII);
+
+	private DecoderFootprint() {
+	}
+
+	public static void main(String[] args) {
+		int connections = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+		ImapDecoderConfig shared = new ImapDecoderConfig();
+		ImapDecoderConfig pooled = new ImapDecoderConfig().pooledMessages(true);
+
+		report("ImapCommandDecoder", connections, () -> new ImapCommandDecoder(shared), CLIENT_SESSION);
+		report("ImapCommandDecoder pooled", connections, () -> new ImapCommandDecoder(pooled), CLIENT_SESSION);
+		report("ImapResponseDecoder", connections, () -> new ImapResponseDecoder(shared), SERVER_SESSION);
+		report("ImapResponseDecoder pooled", connections, () -> new ImapResponseDecoder(pooled), SERVER_SESSION);
+	}
+
+	private static void report(String name, int connections, Supplier<ChannelHandler> decoder, byte[] session) {
+		// warm up so that class and pool initialisation is not accounted
+		open(1000, decoder, session);
+
+		long baseline = retained(connections, ChannelInboundHandlerAdapter::new, null);
+		long withDecoder = retained(connections, decoder, session);
+		System.out.printf("%-28s %6d bytes/connection%n", name, (withDecoder - baseline) / connections);
+	}
+
+	private static long retained(int connections, Supplier<ChannelHandler> handler, byte[] session) {
+		long before = usedHeap();
+		List<EmbeddedChannel> channels = open(connections, handler, session);
+		long after = usedHeap();
+		if (channels.size() != connections) {
+			throw new IllegalStateException();
+		}
+		return after - before;
+	}
+
+	private static List<EmbeddedChannel> open(int connections, Supplier<ChannelHandler> handler, byte[] session) {
+		List<EmbeddedChannel> channels = new ArrayList<>(connections);
+		for (int i = 0; i < connections; i++) {
+			EmbeddedChannel channel = new EmbeddedChannel(handler.get());
+			if (session != null) {
+				channel.writeInbound(Unpooled.wrappedBuffer(session));
+				Object msg;
+				while ((msg = channel.readInbound()) != null) {
+					ReferenceCountUtil.release(msg);
+				}
+			}
+			channels.add(channel);
+		}
+		return channels;
+	}
+
+	private static long usedHeap() {
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+		}
+		return memory.getHeapMemoryUsage().getUsed();
+	}
+}
@@ -0,0 +1,41 @@
+package io.netty.handler.codec.imap.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.netty.channel.ChannelHandler;
+import io.netty.handler.codec.imap.ImapDecoderConfig;
+import io.netty.handler.codec.imap.ImapCommandDecoder;
+
+public class ImapCommandDecoderBenchmark extends AbstractDecoderBenchmark {
+
+	public enum Corpus {
+		APPEND, COMMAND_BURST
+	}
+
+	@Param
+	public Corpus corpus;
+
+	@Override
+	protected byte[] corpus() {
+		switch (corpus) {
+		case APPEND:
+			return ImapCorpus.append();
+		case COMMAND_BURST:
+			return ImapCorpus.commandBurst();
+		default:
+			throw new IllegalArgumentException(corpus.name());
+		}
+	}
+
+	@Override
+	protected ChannelHandler decoder(ImapDecoderConfig config) {
+		return new ImapCommandDecoder(config);
+	}
+
+	@Benchmark
+	public int decode(Blackhole bh) {
+		return feed(bh);
+	}
+}
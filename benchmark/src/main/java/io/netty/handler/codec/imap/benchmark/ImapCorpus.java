@@ -0,0 +1,119 @@
+package io.netty.handler.codec.imap.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Wire samples fed to the decoder benchmarks. Every corpus ends on a message
+ * boundary so the decoder is back in its initial state after each operation.
+ */
+public final class ImapCorpus {
+
+	public static final int APPEND_LITERAL_SIZE = 1024 * 1024;
+	public static final int FETCH_BODY_LITERAL_SIZE = 64 * 1024;
+	public static final int FETCH_BURST_LINES = 200;
+	public static final int SEARCH_HITS = 5000;
+
+	private static final String ENVELOPE = "ENVELOPE (\"Wed, 17 Jul 1996 02:23:25 -0700 (PDT)\" "
+			+ "\"IMAP4rev1 WG mtg summary and minutes\" ((\"Terry Gray\" NIL \"gray\" \"cac.washington.edu\")) "
+			+ "((\"Terry Gray\" NIL \"gray\" \"cac.washington.edu\")) ((\"Terry Gray\" NIL \"gray\" \"cac.washington.edu\")) "
+			+ "((NIL NIL \"imap\" \"cac.washington.edu\")) ((NIL NIL \"minutes\" \"CNRI.Reston.VA.US\") "
+			+ "(\"John Klensin\" NIL \"KLENSIN\" \"MIT.EDU\")) NIL NIL \"<B27397-0100000@cac.washington.edu>\")";
+
+	private static final String BODYSTRUCTURE = "BODYSTRUCTURE ((\"TEXT\" \"PLAIN\" (\"CHARSET\" \"US-ASCII\") NIL NIL "
+			+ "\"7BIT\" 3028 92 NIL NIL NIL) (\"APPLICATION\" \"PDF\" (\"NAME\" \"minutes.pdf\") NIL NIL \"BASE64\" "
+			+ "188232 NIL (\"ATTACHMENT\" (\"FILENAME\" \"minutes.pdf\")) NIL) \"MIXED\" (\"BOUNDARY\" \"b1\") NIL NIL)";
+
+	private ImapCorpus() {
+	}
+
+	/**
+	 * A mailbox sync burst: many untagged FETCH responses carrying flags,
+	 * envelopes and body structures, closed by the tagged completion.
+	 */
+	public static byte[] fetchBurst() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 1; i <= FETCH_BURST_LINES; i++) {
+			sb.append("* ").append(i).append(" FETCH (UID ").append(1000 + i).append(" RFC822.SIZE ")
+					.append(4000 + i * 7).append(" FLAGS (\\Seen $Forwarded) INTERNALDATE \"17-Jul-1996 02:44:25 -0700\" ")
+					.append(ENVELOPE).append(' ').append(BODYSTRUCTURE).append(")\r\n");
+		}
+		sb.append("A042 OK FETCH completed\r\n");
+		return ascii(sb);
+	}
+
+	/**
+	 * A single FETCH BODY[] response with a message sized literal.
+	 */
+	public static byte[] fetchBody() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		write(out, "* 12 FETCH (UID 4827 BODY[] {" + FETCH_BODY_LITERAL_SIZE + "}\r\n");
+		out.write(message(FETCH_BODY_LITERAL_SIZE), 0, FETCH_BODY_LITERAL_SIZE);
+		write(out, ")\r\nA043 OK FETCH completed\r\n");
+		return out.toByteArray();
+	}
+
+	/**
+	 * A SEARCH result listing thousands of message numbers.
+	 */
+	public static byte[] search() {
+		StringBuilder sb = new StringBuilder("* SEARCH");
+		for (int i = 1; i <= SEARCH_HITS; i++) {
+			sb.append(' ').append(i * 3);
+		}
+		sb.append("\r\nA044 OK SEARCH completed\r\n");
+		return ascii(sb);
+	}
+
+	/**
+	 * An APPEND command uploading a large message as a non synchronizing
+	 * literal.
+	 */
+	public static byte[] append() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		write(out, "A003 APPEND saved-messages (\\Seen) {" + APPEND_LITERAL_SIZE + "+}\r\n");
+		out.write(message(APPEND_LITERAL_SIZE), 0, APPEND_LITERAL_SIZE);
+		write(out, "\r\n");
+		return out.toByteArray();
+	}
+
+	/**
+	 * The commands a synchronizing client pipelines on a selected mailbox.
+	 */
+	public static byte[] commandBurst() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 50; i++) {
+			sb.append("a").append(i).append("1 SELECT \"INBOX\"\r\n");
+			sb.append("a").append(i).append("2 UID FETCH 1:* (FLAGS UID RFC822.SIZE INTERNALDATE)\r\n");
+			sb.append("a").append(i).append("3 UID STORE 4827 +FLAGS.SILENT (\\Seen \\Answered)\r\n");
+			sb.append("a").append(i).append("4 STATUS \"Sent Items\" (MESSAGES UIDNEXT UIDVALIDITY UNSEEN)\r\n");
+			sb.append("a").append(i).append("5 UID SEARCH UNSEEN SINCE 1-Feb-1994 NOT FROM \"Smith\"\r\n");
+		}
+		return ascii(sb);
+	}
+
+	private static byte[] message(int size) {
+		Random random = new Random(42);
+		byte[] body = new byte[size];
+		for (int i = 0; i < size; i++) {
+			if (i % 78 == 76) {
+				body[i] = '\r';
+			} else if (i % 78 == 77) {
+				body[i] = '\n';
+			} else {
+				body[i] = (byte) (' ' + random.nextInt(95));
+			}
+		}
+		return body;
+	}
+
+	private static void write(ByteArrayOutputStream out, String s) {
+		byte[] bytes = s.getBytes(StandardCharsets.US_ASCII);
+		out.write(bytes, 0, bytes.length);
+	}
+
+	private static byte[] ascii(CharSequence s) {
+		return s.toString().getBytes(StandardCharsets.US_ASCII);
+	}
+}
@@ -0,0 +1,49 @@
+package io.netty.handler.codec.imap.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.netty.channel.ChannelHandler;
+import io.netty.handler.codec.imap.ImapDecoderConfig;
+import io.netty.handler.codec.imap.ImapResponseDecoder;
+
+public class ImapResponseDecoderBenchmark extends AbstractDecoderBenchmark {
+
+	public enum Corpus {
+		FETCH_BURST, FETCH_BODY, SEARCH
+	}
+
+	@Param
+	public Corpus corpus;
+
+	/**
+	 * Decodes FETCH, SEARCH, SORT and ESEARCH into their typed responses.
+	 */
+	@Param({ "false", "true" })
+	public boolean typedResponses;
+
+	@Override
+	protected byte[] corpus() {
+		switch (corpus) {
+		case FETCH_BURST:
+			return ImapCorpus.fetchBurst();
+		case FETCH_BODY:
+			return ImapCorpus.fetchBody();
+		case SEARCH:
+			return ImapCorpus.search();
+		default:
+			throw new IllegalArgumentException(corpus.name());
+		}
+	}
+
+	@Override
+	protected ChannelHandler decoder(ImapDecoderConfig config) {
+		return new ImapResponseDecoder(config.typedFetch(typedResponses).typedSearch(typedResponses));
+	}
+
+	@Benchmark
+	public int decode(Blackhole bh) {
+		return feed(bh);
+	}
+}
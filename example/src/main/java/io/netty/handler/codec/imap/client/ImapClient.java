@@ -1,14 +1,22 @@
 package io.netty.handler.codec.imap.client;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.codec.imap.CommandParameter;
+import io.netty.handler.codec.imap.ImapClientHandler;
 import io.netty.handler.codec.imap.ImapCommand;
 import io.netty.handler.codec.imap.ImapCommandEncoder;
+import io.netty.handler.codec.imap.ImapFlushConsolidationHandler;
 import io.netty.handler.codec.imap.ImapResponse;
 import io.netty.handler.codec.imap.ImapResponseDecoder;
 import io.netty.handler.logging.LogLevel;
@@ -17,7 +25,9 @@ import io.netty.handler.logging.LoggingHandler;
 public class ImapClient {
 
 	private Bootstrap bootstrap;
-	private ChannelHandlerContext ctx;
+	private volatile ChannelHandlerContext ctx;
+	private volatile boolean autoRead = true;
+	private final ImapClientHandler clientHandler = new ImapClientHandler();
 
 	public ImapClient(Bootstrap bootstrap) {
 		this.bootstrap = bootstrap;
@@ -32,6 +42,8 @@ public class ImapClient {
 				pipeline.addLast(new LoggingHandler(LogLevel.DEBUG));
 				pipeline.addLast(new ImapResponseDecoder());
 				pipeline.addLast(new ImapCommandEncoder());
+				pipeline.addLast(new ImapFlushConsolidationHandler());
+				pipeline.addLast(clientHandler);
 				pipeline.addLast(responseHandler());
 			}
 		};
@@ -39,6 +51,13 @@ public class ImapClient {
 
 	public interface ResponseHandler {
 		public void handle(ImapResponse response);
+
+		/**
+		 * Called when the connection to the server becomes writable or stops
+		 * being so.
+		 */
+		public default void writabilityChanged(boolean writable) {
+		}
 	}
 
 	private ResponseHandler handler;
@@ -61,6 +80,14 @@ public class ImapClient {
 			public void channelRegistered(ChannelHandlerContext ctx) throws Exception {
 				super.channelRegistered(ctx);
 				ImapClient.this.ctx = ctx;
+				// catches up with a call made while connecting
+				ctx.channel().config().setAutoRead(autoRead);
+			}
+
+			@Override
+			public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+				handler.writabilityChanged(ctx.channel().isWritable());
+				super.channelWritabilityChanged(ctx);
 			}
 
 		};
@@ -74,12 +101,32 @@ public class ImapClient {
 		handler.handle(response);
 	}
 
-	public void connect(String host, int port) {
+	public ChannelFuture connect(String host, int port) {
 		bootstrap.handler(initializer());
-		bootstrap.connect(host, port);
+		bootstrap.option(ChannelOption.AUTO_READ, autoRead);
+		return bootstrap.connect(host, port);
+	}
+
+	/**
+	 * Stops or resumes reading responses from the server, from the
+	 * connection on when called before {@link #connect(String, int)}.
+	 */
+	public void autoRead(boolean autoRead) {
+		this.autoRead = autoRead;
+		ChannelHandlerContext ctx = this.ctx;
+		if (ctx != null) {
+			ctx.channel().config().setAutoRead(autoRead);
+		}
 	}
 
 	public void writeCommand(ImapCommand cmd) {
 		ctx.writeAndFlush(cmd);
 	}
+
+	/**
+	 * Sends a command tagged by the client, completed by its tagged response.
+	 */
+	public CompletableFuture<ImapClientHandler.Result> send(String command, List<CommandParameter> parameters) {
+		return clientHandler.send(command, parameters);
+	}
 }
@@ -1,7 +1,9 @@
 package io.netty.handler.codec.imap.client;
 
 import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.handler.logging.LogLevel;
@@ -11,8 +13,13 @@ public class SimpleImapClientFactory {
 	private EventLoopGroup group = new NioEventLoopGroup();
 
 	public ImapClient client() throws InterruptedException {
+		return client(WriteBufferWaterMark.DEFAULT);
+	}
+
+	public ImapClient client(WriteBufferWaterMark waterMark) throws InterruptedException {
 		Bootstrap b = new Bootstrap();
 		b.group(group).channel(NioSocketChannel.class);
+		b.option(ChannelOption.WRITE_BUFFER_WATER_MARK, waterMark);
 		b.handler(new LoggingHandler(LogLevel.INFO));
 
 		ImapClient client = new ImapClient(b);
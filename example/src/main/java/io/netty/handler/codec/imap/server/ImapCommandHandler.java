@@ -16,6 +16,16 @@ public class ImapCommandHandler extends SimpleChannelInboundHandler<ImapCommand>
 
 	@Override
 	protected void channelRead0(ChannelHandlerContext ctx, ImapCommand cmd) throws Exception {
-		client.writeCommand(cmd);
+		client.writeCommand(cmd.retain());
+	}
+
+	/**
+	 * Stops reading responses while this client cannot take them, so a slow
+	 * client does not make them pile up in memory.
+	 */
+	@Override
+	public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+		client.autoRead(ctx.channel().isWritable());
+		super.channelWritabilityChanged(ctx);
 	}
 }
@@ -1,13 +1,17 @@
 package io.netty.handler.codec.imap.server;
 
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.codec.imap.ImapCommandDecoder;
+import io.netty.handler.codec.imap.ImapFlushConsolidationHandler;
 import io.netty.handler.codec.imap.ImapResponse;
 import io.netty.handler.codec.imap.ImapResponseEncoder;
 import io.netty.handler.codec.imap.client.ImapClient;
@@ -21,7 +25,7 @@ public class SimpleImapProxy {
 
 		@Override
 		public void initChannel(SocketChannel ch) throws Exception {
-			ImapClient client = imapClient.client();
+			ImapClient client = imapClient.client(waterMark);
 
 			ChannelPipeline pipeline = ch.pipeline();
 
@@ -29,16 +33,30 @@ public class SimpleImapProxy {
 			pipeline.addLast(new LoggingHandler(LogLevel.DEBUG));
 			pipeline.addLast(new ImapCommandDecoder());
 			pipeline.addLast(new ImapResponseEncoder());
+			pipeline.addLast(new ImapFlushConsolidationHandler());
 			pipeline.addLast(new ImapCommandHandler(client));
 
 			client.responseHandler(new ImapClient.ResponseHandler() {
 
 				@Override
 				public void handle(ImapResponse response) {
-					ch.writeAndFlush(response);
+					ch.writeAndFlush(response.retain());
+				}
+
+				@Override
+				public void writabilityChanged(boolean writable) {
+					// the server outpaces us, stop reading commands
+					ch.config().setAutoRead(writable);
+				}
+			});
+			// commands are read once they can be relayed
+			client.connect(remoteHost, remotePort).addListener((ChannelFutureListener) f -> {
+				if (f.isSuccess()) {
+					ch.config().setAutoRead(true);
+				} else {
+					ch.close();
 				}
 			});
-			client.connect(remoteHost, remotePort);
 		}
 	}
 
@@ -46,11 +64,23 @@ public class SimpleImapProxy {
 	private int remotePort;
 	private String remoteHost;
 	private int port;
+	private WriteBufferWaterMark waterMark;
 
 	public SimpleImapProxy(int port, String remoteHost, int remotePort) {
+		this(port, remoteHost, remotePort, WriteBufferWaterMark.DEFAULT);
+	}
+
+	/**
+	 * @param waterMark
+	 *            the outbound buffer sizes, on both sides, above which the
+	 *            other side stops being read and below which it is read
+	 *            again
+	 */
+	public SimpleImapProxy(int port, String remoteHost, int remotePort, WriteBufferWaterMark waterMark) {
 		this.port = port;
 		this.remoteHost = remoteHost;
 		this.remotePort = remotePort;
+		this.waterMark = waterMark;
 	}
 
 	public void start() throws Exception {
@@ -59,7 +89,9 @@ public class SimpleImapProxy {
 		try {
 			ServerBootstrap b = new ServerBootstrap();
 			b.group(bossGroup, workerGroup).channel(NioServerSocketChannel.class)
-					.handler(new LoggingHandler(LogLevel.INFO)).childHandler(new Init());
+					.handler(new LoggingHandler(LogLevel.INFO)).childHandler(new Init())
+					.childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, waterMark)
+					.childOption(ChannelOption.AUTO_READ, false);
 
 			b.bind(port).sync().channel().closeFuture().sync();
 		} finally {
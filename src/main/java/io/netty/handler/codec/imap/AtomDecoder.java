@@ -18,7 +18,7 @@ package io.netty.handler.codec.imap;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufProcessor;
 import io.netty.handler.codec.TooLongFrameException;
-import io.netty.util.internal.AppendableCharSequence;
+import io.netty.util.CharsetUtil;
 
 public class AtomDecoder implements ByteBufProcessor {
 
@@ -27,25 +27,56 @@ public class AtomDecoder implements ByteBufProcessor {
 	private static final int MAX_ATOM_LENGTH = 128;
 	public static final byte SP = 32;
 
-	private final AppendableCharSequence seq = new AppendableCharSequence(128);
-
 	private int size = 0;
+	private long number;
+	private long lastNumber = -1;
+	private ImapKeyword lastKeyword;
 
+	/**
+	 * Scans the next atom, resuming after the bytes already scanned by a
+	 * previous call that ran out of input.
+	 */
 	public String parse(ByteBuf buffer) {
-		reset();
-
-		int pos = buffer.forEachByte((ByteBufProcessor) this);
+		int pos = buffer.forEachByte(buffer.readerIndex() + size, buffer.readableBytes() - size,
+				(ByteBufProcessor) this);
 		if (pos == -1) {
 			return null;
 		} else {
+			int start = buffer.readerIndex();
 			buffer.readerIndex(pos);
-			return new String(seq.toString());
+			lastNumber = size > 0 ? number : -1;
+			lastKeyword = lastNumber < 0 ? ImapKeyword.of(buffer, start, size) : null;
+			String atom = lastKeyword != null && lastKeyword.isExactly(buffer, start, size) ? lastKeyword.toString()
+					: buffer.toString(start, size, CharsetUtil.US_ASCII);
+			size = 0;
+			number = 0;
+			return atom;
 		}
 	}
 
 	void reset() {
-		seq.reset();
 		size = 0;
+		number = 0;
+		lastNumber = -1;
+		lastKeyword = null;
+	}
+
+	/**
+	 * Whether the last parsed atom is a number that fits in an int.
+	 */
+	public boolean isNumber() {
+		return lastNumber >= 0;
+	}
+
+	public int number() {
+		return (int) lastNumber;
+	}
+
+	/**
+	 * The keyword matching the last parsed atom, or <code>null</code>.
+	 */
+	public ImapKeyword keyword() {
+		return lastKeyword;
 	}
 
 	@Override
@@ -63,8 +94,15 @@ public class AtomDecoder implements ByteBufProcessor {
 			if (size >= MAX_ATOM_LENGTH) {
 				throw new TooLongFrameException("ATOM is larger than " + MAX_ATOM_LENGTH + " bytes.");
 			}
+			if (number >= 0) {
+				int digit = nextByte - '0';
+				if (digit < 0 || digit > 9 || number > (Integer.MAX_VALUE - digit) / 10) {
+					number = -1;
+				} else {
+					number = number * 10 + digit;
+				}
+			}
 			size++;
-			seq.append(nextByte);
 			return true;
 		}
 
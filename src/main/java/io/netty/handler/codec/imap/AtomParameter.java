@@ -16,14 +16,22 @@
 package io.netty.handler.codec.imap;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.ByteBufUtil;
+import io.netty.util.AsciiString;
 
 public class AtomParameter implements CommandParameter {
 
-	private final String value;
+	private final AsciiString value;
 
-	public AtomParameter(String value) {
-		this.value = value;
+	/**
+	 * The value is kept as ASCII bytes and only decoded to a {@link String}
+	 * when {@link #toString()} is called.
+	 */
+	public AtomParameter(CharSequence value) {
+		this.value = value == null ? null : AsciiString.of(value);
+	}
+
+	public AsciiString getValue() {
+		return value;
 	}
 
 	@Override
@@ -33,7 +41,7 @@ public class AtomParameter implements CommandParameter {
 
 	@Override
 	public String toString() {
-		return value;
+		return String.valueOf(value);
 	}
 
 	@Override
@@ -63,7 +71,7 @@ public class AtomParameter implements CommandParameter {
 
 	@Override
 	public void write(ByteBuf buf) {
-		ByteBufUtil.writeAscii(buf, value);
+		buf.writeBytes(value.array(), value.arrayOffset(), value.length());
 	}
 
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2016 Laurent Belmonte <laurent.belmonte@gmail.com>
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.imap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * View over a BODYSTRUCTURE list of a {@link FetchResponse}, or over one of
+ * its parts. Fields are read from the list when asked for.
+ */
+public class BodyStructure {
+
+	private final ListParameter list;
+
+	public BodyStructure(ListParameter list) {
+		this.list = list;
+	}
+
+	public ListParameter getList() {
+		return list;
+	}
+
+	/**
+	 * Whether this is a multipart body, whose parts come first.
+	 */
+	public boolean isMultipart() {
+		return list.getList(0) != null;
+	}
+
+	public List<BodyStructure> getParts() {
+		if (!isMultipart()) {
+			return Collections.emptyList();
+		}
+		List<BodyStructure> parts = new ArrayList<>();
+		for (int i = 0; i < list.getItems().size(); i++) {
+			ListParameter part = list.getList(i);
+			if (part == null) {
+				break;
+			}
+			parts.add(new BodyStructure(part));
+		}
+		return parts;
+	}
+
+	/**
+	 * The media type, <code>MULTIPART</code> for a multipart body.
+	 */
+	public String getType() {
+		return isMultipart() ? "MULTIPART" : list.getString(0);
+	}
+
+	public String getSubtype() {
+		return isMultipart() ? list.getString(getParts().size()) : list.getString(1);
+	}
+
+	/**
+	 * The content transfer encoding of a single part body, or
+	 * <code>null</code>.
+	 */
+	public String getEncoding() {
+		return isMultipart() ? null : list.getString(5);
+	}
+
+	/**
+	 * The size in bytes of a single part body, or -1.
+	 */
+	public long getSize() {
+		CommandParameter size = isMultipart() || list.getItems().size() < 7 ? null : list.getItems().get(6);
+		return size instanceof NumericParameter ? ((NumericParameter) size).longValue() : -1;
+	}
+
+	@Override
+	public String toString() {
+		return "BodyStructure " + list;
+	}
+}
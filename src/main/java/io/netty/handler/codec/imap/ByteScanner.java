@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016 Laurent Belmonte <laurent.belmonte@gmail.com>
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.imap;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Finds delimiters eight bytes at a time: each {@link ByteBuf#getLong(int)}
+ * word is compared with every delimiter at once using SWAR (SIMD within a
+ * register) arithmetic. Ranges shorter than a word and the tail of a range
+ * are scanned byte by byte.
+ */
+final class ByteScanner {
+
+	private static final long ONES = 0x0101010101010101L;
+	private static final long LOW7 = 0x7F7F7F7F7F7F7F7FL;
+
+	private ByteScanner() {
+	}
+
+	/**
+	 * Index of the first <code>a</code> in <code>[from, to)</code>, or -1.
+	 */
+	static int indexOf(ByteBuf buf, int from, int to, byte a) {
+		return indexOf(buf, from, to, a, a, a);
+	}
+
+	/**
+	 * Index of the first <code>a</code>, <code>b</code> or <code>c</code> in
+	 * <code>[from, to)</code>, or -1.
+	 */
+	static int indexOf(ByteBuf buf, int from, int to, byte a, byte b, byte c) {
+		int i = from;
+		long pa = ONES * (a & 0xFF);
+		long pb = ONES * (b & 0xFF);
+		long pc = ONES * (c & 0xFF);
+		for (; i + 8 <= to; i += 8) {
+			// getLong is big endian: the first byte is the most significant
+			long word = buf.getLong(i);
+			long match = zeroBytes(word ^ pa) | zeroBytes(word ^ pb) | zeroBytes(word ^ pc);
+			if (match != 0) {
+				return i + (Long.numberOfLeadingZeros(match) >>> 3);
+			}
+		}
+		for (; i < to; i++) {
+			byte value = buf.getByte(i);
+			if (value == a || value == b || value == c) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Sets the high bit of every zero byte of <code>x</code>, and only of
+	 * those: unlike the shorter <code>(x - ONES) &amp; ~x</code> form no
+	 * borrow crosses bytes, so there are no false positives before a match.
+	 */
+	private static long zeroBytes(long x) {
+		long t = (x & LOW7) + LOW7;
+		return ~(t | x | LOW7);
+	}
+}
@@ -19,8 +19,9 @@ import java.nio.charset.Charset;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
+import io.netty.util.ReferenceCounted;
 
-public class ChunkParameter implements CommandParameter {
+public class ChunkParameter implements CommandParameter, ReferenceCounted {
 
 	private ByteBuf buffer;
 	private boolean last;
@@ -30,6 +31,10 @@ public class ChunkParameter implements CommandParameter {
 		this.last = last;
 	}
 
+	public ByteBuf content() {
+		return buffer;
+	}
+
 	@Override
 	public String toString() {
 		ByteBuf buf = Unpooled.buffer();
@@ -39,9 +44,57 @@ public class ChunkParameter implements CommandParameter {
 
 	@Override
 	public boolean isPartial() {
+		return !last;
+	}
+
+	public boolean isLast() {
 		return last;
 	}
 
+	@Override
+	public ChunkParameter retainedDuplicate() {
+		return new ChunkParameter(buffer.retainedDuplicate(), last);
+	}
+
+	@Override
+	public int refCnt() {
+		return buffer.refCnt();
+	}
+
+	@Override
+	public ChunkParameter retain() {
+		buffer.retain();
+		return this;
+	}
+
+	@Override
+	public ChunkParameter retain(int increment) {
+		buffer.retain(increment);
+		return this;
+	}
+
+	@Override
+	public ChunkParameter touch() {
+		buffer.touch();
+		return this;
+	}
+
+	@Override
+	public ChunkParameter touch(Object hint) {
+		buffer.touch(hint);
+		return this;
+	}
+
+	@Override
+	public boolean release() {
+		return buffer.release();
+	}
+
+	@Override
+	public boolean release(int decrement) {
+		return buffer.release(decrement);
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -72,7 +125,12 @@ public class ChunkParameter implements CommandParameter {
 
 	@Override
 	public void write(ByteBuf buf) {
-		buf.writeBytes(buffer.slice());
+		buf.writeBytes(buffer, buffer.readerIndex(), buffer.readableBytes());
+	}
+
+	@Override
+	public void write(ImapOutput out) {
+		out.add(buffer);
 	}
 
 }
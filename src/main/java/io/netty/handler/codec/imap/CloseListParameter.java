@@ -19,6 +19,8 @@ import io.netty.buffer.ByteBuf;
 
 public class CloseListParameter implements CommandParameter {
 
+	public static final CloseListParameter INSTANCE = new CloseListParameter();
+
 	@Override
 	public boolean isPartial() {
 		return false;
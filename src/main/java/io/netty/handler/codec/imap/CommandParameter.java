@@ -15,9 +15,11 @@
  */
 package io.netty.handler.codec.imap;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.util.ReferenceCountUtil;
 
 public interface CommandParameter {
 
@@ -39,4 +41,69 @@ public interface CommandParameter {
 	}
 
 	public void write(ByteBuf buf);
+
+	/**
+	 * Parameters holding a buffer return a copy sharing its content with its
+	 * own reader index and reference, immutable ones return themselves.
+	 */
+	public default CommandParameter retainedDuplicate() {
+		return this;
+	}
+
+	public static List<CommandParameter> retainedDuplicate(List<CommandParameter> parameters) {
+		if (parameters == null) {
+			return null;
+		}
+		List<CommandParameter> duplicate = new ArrayList<>(parameters.size());
+		for (CommandParameter p : parameters) {
+			duplicate.add(p.retainedDuplicate());
+		}
+		return duplicate;
+	}
+
+	public static void release(List<CommandParameter> parameters) {
+		if (parameters != null) {
+			for (CommandParameter p : parameters) {
+				ReferenceCountUtil.release(p);
+			}
+		}
+	}
+
+	public static void touch(List<CommandParameter> parameters, Object hint) {
+		if (parameters != null) {
+			for (CommandParameter p : parameters) {
+				ReferenceCountUtil.touch(p, hint);
+			}
+		}
+	}
+
+	/**
+	 * Writes this parameter to a gathering output. Parameters carrying a
+	 * payload override this to pass their buffer through without copying it.
+	 */
+	public default void write(ImapOutput out) {
+		write(out.buffer());
+	}
+
+	public static void write(ImapOutput out, List<CommandParameter> parameters) {
+		write(out, null, parameters);
+	}
+
+	/**
+	 * Writes parameters that follow <code>last</code>, which was written
+	 * separately.
+	 */
+	public static void write(ImapOutput out, CommandParameter last, List<CommandParameter> parameters) {
+		if (parameters == null) {
+			return;
+		}
+		for (CommandParameter p : parameters) {
+			if (last == null || (!(last instanceof OpenListParameter) && !(p instanceof CloseListParameter)
+					&& !(p instanceof ChunkParameter))) {
+				out.buffer().writeByte(' ');
+			}
+			last = p;
+			p.write(out);
+		}
+	}
 }
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2016 Laurent Belmonte <laurent.belmonte@gmail.com>
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.imap;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.DefaultByteBufHolder;
+
+public class DefaultImapLiteralContent extends DefaultByteBufHolder implements ImapLiteralContent {
+
+	public DefaultImapLiteralContent(ByteBuf content) {
+		super(content);
+	}
+
+	@Override
+	public ImapLiteralContent copy() {
+		return (ImapLiteralContent) super.copy();
+	}
+
+	@Override
+	public ImapLiteralContent duplicate() {
+		return (ImapLiteralContent) super.duplicate();
+	}
+
+	@Override
+	public ImapLiteralContent retainedDuplicate() {
+		return (ImapLiteralContent) super.retainedDuplicate();
+	}
+
+	@Override
+	public ImapLiteralContent replace(ByteBuf content) {
+		return new DefaultImapLiteralContent(content);
+	}
+
+	@Override
+	public ImapLiteralContent retain() {
+		super.retain();
+		return this;
+	}
+
+	@Override
+	public ImapLiteralContent retain(int increment) {
+		super.retain(increment);
+		return this;
+	}
+
+	@Override
+	public ImapLiteralContent touch() {
+		super.touch();
+		return this;
+	}
+
+	@Override
+	public ImapLiteralContent touch(Object hint) {
+		super.touch(hint);
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		return "DefaultImapLiteralContent [content=" + content() + "]";
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2016 Laurent Belmonte <laurent.belmonte@gmail.com>
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.imap;
+
+import java.util.Collections;
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.ReferenceCountUtil;
+
+public class DefaultLastImapLiteralContent extends DefaultImapLiteralContent implements LastImapLiteralContent {
+
+	private final List<CommandParameter> trailingParameters;
+
+	public DefaultLastImapLiteralContent(ByteBuf content) {
+		this(content, Collections.emptyList());
+	}
+
+	public DefaultLastImapLiteralContent(ByteBuf content, List<CommandParameter> trailingParameters) {
+		super(content);
+		this.trailingParameters = trailingParameters;
+	}
+
+	@Override
+	public List<CommandParameter> trailingParameters() {
+		return trailingParameters;
+	}
+
+	@Override
+	public boolean partial() {
+		if (trailingParameters.isEmpty()) {
+			return false;
+		}
+		return trailingParameters.get(trailingParameters.size() - 1).isPartial();
+	}
+
+	@Override
+	public LastImapLiteralContent copy() {
+		return (LastImapLiteralContent) super.copy();
+	}
+
+	/**
+	 * Shares the content and the trailing parameters with this message.
+	 */
+	@Override
+	public LastImapLiteralContent duplicate() {
+		return new DefaultLastImapLiteralContent(content().duplicate(), trailingParameters);
+	}
+
+	@Override
+	public LastImapLiteralContent retainedDuplicate() {
+		return (LastImapLiteralContent) super.retainedDuplicate();
+	}
+
+	@Override
+	public LastImapLiteralContent replace(ByteBuf content) {
+		return new DefaultLastImapLiteralContent(content,
+				trailingParameters.isEmpty() ? trailingParameters : CommandParameter.retainedDuplicate(trailingParameters));
+	}
+
+	@Override
+	public LastImapLiteralContent retain() {
+		return retain(1);
+	}
+
+	/**
+	 * Retains the content and the trailing parameters alike.
+	 */
+	@Override
+	public LastImapLiteralContent retain(int increment) {
+		super.retain(increment);
+		for (CommandParameter p : trailingParameters) {
+			ReferenceCountUtil.retain(p, increment);
+		}
+		return this;
+	}
+
+	@Override
+	public boolean release() {
+		return release(1);
+	}
+
+	/**
+	 * Releases the content and the trailing parameters alike.
+	 */
+	@Override
+	public boolean release(int decrement) {
+		for (CommandParameter p : trailingParameters) {
+			ReferenceCountUtil.release(p, decrement);
+		}
+		return super.release(decrement);
+	}
+
+	@Override
+	public LastImapLiteralContent touch() {
+		super.touch();
+		return this;
+	}
+
+	@Override
+	public LastImapLiteralContent touch(Object hint) {
+		super.touch(hint);
+		CommandParameter.touch(trailingParameters, hint);
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		return "DefaultLastImapLiteralContent [content=" + content() + ", trailingParameters=" + trailingParameters
+				+ "]";
+	}
+}
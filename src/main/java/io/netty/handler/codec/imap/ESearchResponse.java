@@ -0,0 +1,240 @@
+/*
+ * Copyright 2016 Laurent Belmonte <laurent.belmonte@gmail.com>
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.imap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+
+/**
+ * A <code>* ESEARCH</code> response (RFC 4731) decoded with
+ * {@link ImapDecoderConfig#typedSearch(boolean)}. MIN, MAX, COUNT and
+ * MODSEQ are held in primitive fields, ALL as a
+ * {@link SequenceSetParameter} and any other return data in
+ * {@link #getExtensions()}.
+ */
+public class ESearchResponse extends ImapResponse.AbstractImapResponse {
+
+	String tag;
+	boolean uid;
+	long min = -1;
+	long max = -1;
+	long count = -1;
+	long modSeq = -1;
+	SequenceSetParameter all;
+	final ListParameter extensions;
+
+	public ESearchResponse() {
+		this(new ListParameter());
+	}
+
+	public ESearchResponse(ListParameter extensions) {
+		this.extensions = extensions;
+	}
+
+	/**
+	 * The tag of the command this response answers, or <code>null</code>.
+	 */
+	public String getTag() {
+		return tag;
+	}
+
+	/**
+	 * Whether the results are UIDs rather than message numbers.
+	 */
+	public boolean isUid() {
+		return uid;
+	}
+
+	/**
+	 * The MIN, or -1 when not sent.
+	 */
+	public long getMin() {
+		return min;
+	}
+
+	/**
+	 * The MAX, or -1 when not sent.
+	 */
+	public long getMax() {
+		return max;
+	}
+
+	/**
+	 * The COUNT, or -1 when not sent.
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * The MODSEQ, or -1 when not sent.
+	 */
+	public long getModSeq() {
+		return modSeq;
+	}
+
+	/**
+	 * The ALL set, or <code>null</code> when not sent.
+	 */
+	public SequenceSetParameter getAll() {
+		return all;
+	}
+
+	/**
+	 * The other return data, as name and value pairs.
+	 */
+	public ListParameter getExtensions() {
+		return extensions;
+	}
+
+	@Override
+	public boolean tagged() {
+		return false;
+	}
+
+	/**
+	 * The response as generic parameters, built on each call. They share the
+	 * content of this response and must not be released on their own.
+	 */
+	@Override
+	public List<CommandParameter> getParameters() {
+		List<CommandParameter> parameters = new ArrayList<>();
+		if (tag != null) {
+			parameters.add(new ListParameter().add(new AtomParameter(ImapKeyword.TAG.asciiName()))
+					.add(new QuotedStringParameter(tag)));
+		}
+		if (uid) {
+			parameters.add(new AtomParameter(ImapKeyword.UID.asciiName()));
+		}
+		addNumber(parameters, ImapKeyword.MIN, min);
+		addNumber(parameters, ImapKeyword.MAX, max);
+		if (all != null) {
+			parameters.add(new AtomParameter(ImapKeyword.ALL.asciiName()));
+			parameters.add(all);
+		}
+		addNumber(parameters, ImapKeyword.COUNT, count);
+		addNumber(parameters, ImapKeyword.MODSEQ, modSeq);
+		parameters.addAll(extensions.getItems());
+		return parameters;
+	}
+
+	private static void addNumber(List<CommandParameter> parameters, ImapKeyword name, long value) {
+		if (value >= 0) {
+			parameters.add(new AtomParameter(name.asciiName()));
+			parameters.add(ParameterDecoder.numberParameter(value));
+		}
+	}
+
+	@Override
+	public ESearchResponse retainedDuplicate() {
+		ESearchResponse duplicate = new ESearchResponse(extensions.retainedDuplicate());
+		duplicate.tag = tag;
+		duplicate.uid = uid;
+		duplicate.min = min;
+		duplicate.max = max;
+		duplicate.count = count;
+		duplicate.modSeq = modSeq;
+		duplicate.all = all;
+		return duplicate;
+	}
+
+	@Override
+	public ImapResponse touch(Object hint) {
+		extensions.touch(hint);
+		return this;
+	}
+
+	@Override
+	protected void deallocate() {
+		extensions.release();
+	}
+
+	@Override
+	public void write(ByteBuf buf) {
+		buf.writeByte('*');
+		buf.writeByte(' ');
+		ByteBufUtil.writeAscii(buf, ImapKeyword.ESEARCH.toString());
+		CommandParameter.write(buf, getParameters());
+	}
+
+	@Override
+	public void write(ImapOutput out) {
+		ByteBuf buf = out.buffer();
+		buf.writeByte('*');
+		buf.writeByte(' ');
+		ByteBufUtil.writeAscii(buf, ImapKeyword.ESEARCH.toString());
+		CommandParameter.write(out, getParameters());
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((all == null) ? 0 : all.hashCode());
+		result = prime * result + (int) (count ^ (count >>> 32));
+		result = prime * result + extensions.hashCode();
+		result = prime * result + (int) (max ^ (max >>> 32));
+		result = prime * result + (int) (min ^ (min >>> 32));
+		result = prime * result + (int) (modSeq ^ (modSeq >>> 32));
+		result = prime * result + ((tag == null) ? 0 : tag.hashCode());
+		result = prime * result + (uid ? 1231 : 1237);
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		ESearchResponse other = (ESearchResponse) obj;
+		if (all == null) {
+			if (other.all != null)
+				return false;
+		} else if (!all.equals(other.all))
+			return false;
+		if (count != other.count)
+			return false;
+		if (!extensions.equals(other.extensions))
+			return false;
+		if (max != other.max)
+			return false;
+		if (min != other.min)
+			return false;
+		if (modSeq != other.modSeq)
+			return false;
+		if (tag == null) {
+			if (other.tag != null)
+				return false;
+		} else if (!tag.equals(other.tag))
+			return false;
+		if (uid != other.uid)
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "ESearchResponse [tag=" + tag + ", uid=" + uid + ", min=" + min + ", max=" + max + ", count=" + count
+				+ ", modSeq=" + modSeq + ", all=" + all + ", extensions=" + extensions + "]";
+	}
+
+}
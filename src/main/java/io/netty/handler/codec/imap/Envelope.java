@@ -0,0 +1,132 @@
+/*
+ * Copyright 2016 Laurent Belmonte <laurent.belmonte@gmail.com>
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.imap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * View over the ENVELOPE list of a {@link FetchResponse}: fields are read
+ * from the list when asked for, nothing is decoded up front. Strings are
+ * returned as sent, without MIME header decoding.
+ */
+public class Envelope {
+
+	private final ListParameter list;
+
+	public Envelope(ListParameter list) {
+		this.list = list;
+	}
+
+	public ListParameter getList() {
+		return list;
+	}
+
+	public String getDate() {
+		return list.getString(0);
+	}
+
+	public String getSubject() {
+		return list.getString(1);
+	}
+
+	public List<Address> getFrom() {
+		return addresses(2);
+	}
+
+	public List<Address> getSender() {
+		return addresses(3);
+	}
+
+	public List<Address> getReplyTo() {
+		return addresses(4);
+	}
+
+	public List<Address> getTo() {
+		return addresses(5);
+	}
+
+	public List<Address> getCc() {
+		return addresses(6);
+	}
+
+	public List<Address> getBcc() {
+		return addresses(7);
+	}
+
+	public String getInReplyTo() {
+		return list.getString(8);
+	}
+
+	public String getMessageId() {
+		return list.getString(9);
+	}
+
+	private List<Address> addresses(int index) {
+		ListParameter addresses = list.getList(index);
+		if (addresses == null) {
+			return Collections.emptyList();
+		}
+		List<Address> ret = new ArrayList<>(addresses.getItems().size());
+		for (int i = 0; i < addresses.getItems().size(); i++) {
+			ListParameter address = addresses.getList(i);
+			if (address != null) {
+				ret.add(new Address(address));
+			}
+		}
+		return ret;
+	}
+
+	@Override
+	public String toString() {
+		return "Envelope " + list;
+	}
+
+	/**
+	 * An address of an envelope. A <code>null</code> host marks the start
+	 * (mailbox being the group name) or the end of an RFC 2822 group.
+	 */
+	public static class Address {
+
+		private final ListParameter list;
+
+		public Address(ListParameter list) {
+			this.list = list;
+		}
+
+		public String getName() {
+			return list.getString(0);
+		}
+
+		public String getRoute() {
+			return list.getString(1);
+		}
+
+		public String getMailbox() {
+			return list.getString(2);
+		}
+
+		public String getHost() {
+			return list.getString(3);
+		}
+
+		@Override
+		public String toString() {
+			return getMailbox() + "@" + getHost();
+		}
+	}
+}
@@ -0,0 +1,387 @@
+/*
+ * Copyright 2016 Laurent Belmonte <laurent.belmonte@gmail.com>
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.imap;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.imap.ImapTokenizer.Token;
+import io.netty.util.AsciiString;
+import io.netty.util.CharsetUtil;
+
+/**
+ * Decodes the attribute list of a FETCH response into a
+ * {@link FetchResponse}, reading the typed attributes straight from the
+ * tokens and handing any other value to a {@link ParameterDecoder}.
+ */
+final class FetchDecoder {
+
+	private enum State {
+		OPEN, KEY, SECTION, VALUE, FLAGS, MODSEQ, NESTED, END
+	}
+
+	private static final byte[] MONTHS = "JANFEBMARAPRMAYJUNJULAUGSEPOCTNOVDEC".getBytes(CharsetUtil.US_ASCII);
+
+	private final ParameterDecoder values;
+	private final ImapTokenizer tokenizer;
+	private State state;
+	// typed attribute whose value is read, null for other attributes
+	private ImapKeyword key;
+	// attribute name whose section spec is split across tokens
+	private StringBuilder section;
+	private FetchResponse response;
+
+	FetchDecoder(ImapDecoderConfig config) {
+		values = new ParameterDecoder(false, config, true);
+		tokenizer = values.tokenizer();
+		reset();
+	}
+
+	/**
+	 * Starts the response of message <code>number</code>, at the space
+	 * following <code>FETCH</code>.
+	 */
+	void start(int number) {
+		reset();
+		response = new FetchResponse(number);
+	}
+
+	/**
+	 * Returns the response once its line is read, or <code>null</code> when
+	 * more input is needed.
+	 */
+	FetchResponse decode(ChannelHandlerContext ctx, ByteBuf in) {
+		for (;;) {
+			if (state == State.NESTED) {
+				CommandParameter param = values.next(ctx, in);
+				if (param == null) {
+					if (values.getState() == ParameterDecoder.State.Ended) {
+						throw new CorruptedFrameException("FETCH attribute not ended");
+					}
+					return null;
+				}
+				value(param);
+				continue;
+			}
+
+			Token token = tokenizer.nextToken(in);
+			if (token == null) {
+				return null;
+			}
+			switch (state) {
+			case OPEN:
+				expect(token, Token.LIST_START);
+				state = State.KEY;
+				break;
+			case KEY:
+				key(ctx, in, token);
+				break;
+			case SECTION:
+				section(in, token);
+				break;
+			case VALUE:
+				value(ctx, in, token);
+				break;
+			case FLAGS:
+				flag(in, token);
+				break;
+			case MODSEQ:
+				if (token == Token.NUMBER) {
+					response.modSeq = tokenizer.number();
+				} else {
+					expect(token, Token.LIST_END);
+					state = State.KEY;
+				}
+				break;
+			case END:
+				expect(token, Token.LINE_END);
+				FetchResponse ret = response;
+				response = null;
+				return ret;
+			default:
+				throw new IllegalStateException(state.name());
+			}
+		}
+	}
+
+	private void key(ChannelHandlerContext ctx, ByteBuf in, Token token) {
+		if (token == Token.LIST_END) {
+			state = State.END;
+			return;
+		}
+		expect(token, Token.ATOM);
+		key = ImapKeyword.of(in, tokenizer.offset(), tokenizer.length());
+		if (key != null) {
+			switch (key) {
+			case UID:
+			case FLAGS:
+			case RFC822_SIZE:
+			case INTERNALDATE:
+			case MODSEQ:
+			case ENVELOPE:
+			case BODYSTRUCTURE:
+				state = State.VALUE;
+				return;
+			default:
+			}
+		}
+		key = null;
+		int open = in.indexOf(tokenizer.offset(), tokenizer.offset() + tokenizer.length(), (byte) '[');
+		if (open >= 0 && in.indexOf(open, tokenizer.offset() + tokenizer.length(), (byte) ']') < 0) {
+			// a section spec holding a list, as in BODY[HEADER.FIELDS (FROM)]
+			section = new StringBuilder(in.toString(tokenizer.offset(), tokenizer.length(), CharsetUtil.US_ASCII));
+			state = State.SECTION;
+			return;
+		}
+		response.attributes.add(values.next(ctx, in, token));
+		state = State.VALUE;
+	}
+
+	/**
+	 * Appends a token of a section spec to the attribute name, up to the atom
+	 * starting with the closing bracket and the partial origin.
+	 */
+	private void section(ByteBuf in, Token token) {
+		String text = in.toString(tokenizer.offset(), tokenizer.length(), CharsetUtil.US_ASCII);
+		switch (token) {
+		case ATOM:
+			if (text.charAt(0) == ']') {
+				section.append(text);
+				response.attributes.add(new AtomParameter(section.toString()));
+				section = null;
+				state = State.VALUE;
+				return;
+			}
+			separate().append(text);
+			return;
+		case NUMBER:
+			separate().append(text);
+			return;
+		case QUOTED_STRING:
+			separate().append('"').append(text).append('"');
+			return;
+		case LIST_START:
+			separate().append('(');
+			return;
+		case LIST_END:
+			section.append(')');
+			return;
+		default:
+			throw new CorruptedFrameException("FETCH section not ended, got " + token);
+		}
+	}
+
+	private StringBuilder separate() {
+		char last = section.charAt(section.length() - 1);
+		return last == '[' || last == '(' ? section : section.append(' ');
+	}
+
+	private void value(ChannelHandlerContext ctx, ByteBuf in, Token token) {
+		if (key != null) {
+			switch (key) {
+			case UID:
+				if (token == Token.NUMBER) {
+					response.uid = tokenizer.number();
+					state = State.KEY;
+					return;
+				}
+				break;
+			case RFC822_SIZE:
+				if (token == Token.NUMBER) {
+					response.size = tokenizer.number();
+					state = State.KEY;
+					return;
+				}
+				break;
+			case INTERNALDATE:
+				if (token == Token.QUOTED_STRING && internalDate(in)) {
+					state = State.KEY;
+					return;
+				}
+				break;
+			case FLAGS:
+				if (token == Token.LIST_START) {
+					response.hasFlags = true;
+					state = State.FLAGS;
+					return;
+				}
+				break;
+			case MODSEQ:
+				if (token == Token.LIST_START) {
+					state = State.MODSEQ;
+					return;
+				}
+				break;
+			default:
+			}
+		}
+		if (token == Token.LIST_END || token == Token.LINE_END) {
+			throw new CorruptedFrameException("FETCH attribute without value");
+		}
+		CommandParameter param = values.next(ctx, in, token);
+		if (param == null) {
+			state = State.NESTED;
+		} else {
+			value(param);
+		}
+	}
+
+	private void value(CommandParameter param) {
+		if (key == ImapKeyword.ENVELOPE && param instanceof ListParameter && response.envelope == null) {
+			response.envelope = (ListParameter) param;
+		} else if (key == ImapKeyword.BODYSTRUCTURE && param instanceof ListParameter
+				&& response.bodyStructure == null) {
+			response.bodyStructure = (ListParameter) param;
+		} else {
+			// a typed attribute with an unexpected value is kept as is
+			if (key != null) {
+				response.attributes.add(new AtomParameter(key.asciiName()));
+			}
+			response.attributes.add(param);
+		}
+		key = null;
+		state = State.KEY;
+	}
+
+	private void flag(ByteBuf in, Token token) {
+		if (token == Token.LIST_END) {
+			state = State.KEY;
+			return;
+		}
+		expect(token, Token.ATOM);
+		int offset = tokenizer.offset();
+		int length = tokenizer.length();
+		if (in.getByte(offset) == '\\') {
+			for (int i = 0; i < FetchResponse.FLAG_NAMES.length; i++) {
+				if (equalsIgnoreCase(in, offset, length, FetchResponse.FLAG_NAMES[i])) {
+					response.flags |= 1 << i;
+					return;
+				}
+			}
+		}
+		if (response.keywords == null) {
+			response.keywords = new ArrayList<>();
+		}
+		response.keywords.add(new AsciiString(ByteBufUtil.getBytes(in, offset, length), false));
+	}
+
+	/**
+	 * Parses a <code>dd-Mon-yyyy hh:mm:ss +zzzz</code> date, the day being
+	 * possibly padded with a space or written with a single digit.
+	 */
+	private boolean internalDate(ByteBuf in) {
+		int index = tokenizer.offset();
+		int end = index + tokenizer.length();
+		if (index < end && in.getByte(index) == ' ') {
+			index++;
+		}
+		int dash = index + 1 < end && in.getByte(index + 1) == '-' ? index + 1 : index + 2;
+		if (end - dash != 24 || in.getByte(dash) != '-' || in.getByte(dash + 4) != '-'
+				|| in.getByte(dash + 9) != ' ' || in.getByte(dash + 12) != ':' || in.getByte(dash + 15) != ':'
+				|| in.getByte(dash + 18) != ' ') {
+			return false;
+		}
+		int day = digits(in, index, dash - index);
+		int month = month(in, dash + 1);
+		int year = digits(in, dash + 5, 4);
+		int hour = digits(in, dash + 10, 2);
+		int minute = digits(in, dash + 13, 2);
+		int second = digits(in, dash + 16, 2);
+		byte sign = in.getByte(dash + 19);
+		int zoneHours = digits(in, dash + 20, 2);
+		int zoneMinutes = digits(in, dash + 22, 2);
+		if (day < 0 || month < 0 || year < 0 || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0
+				|| second > 60 || (sign != '+' && sign != '-') || zoneHours < 0 || zoneMinutes < 0
+				|| zoneMinutes > 59) {
+			return false;
+		}
+		long epochDay;
+		try {
+			epochDay = LocalDate.of(year, month, day).toEpochDay();
+		} catch (DateTimeException e) {
+			return false;
+		}
+		int offset = (zoneHours * 60 + zoneMinutes) * (sign == '-' ? -1 : 1);
+		long seconds = epochDay * 86400 + hour * 3600 + minute * 60 + second - offset * 60;
+		response.internalDate = seconds * 1000;
+		response.internalDateOffset = offset;
+		return true;
+	}
+
+	private static int digits(ByteBuf in, int index, int count) {
+		int value = 0;
+		for (int i = index; i < index + count; i++) {
+			int digit = in.getByte(i) - '0';
+			if (digit < 0 || digit > 9) {
+				return -1;
+			}
+			value = value * 10 + digit;
+		}
+		return value;
+	}
+
+	private static int month(ByteBuf in, int index) {
+		for (int m = 0; m < 12; m++) {
+			if (upperCase(in.getByte(index)) == MONTHS[m * 3]
+					&& upperCase(in.getByte(index + 1)) == MONTHS[m * 3 + 1]
+					&& upperCase(in.getByte(index + 2)) == MONTHS[m * 3 + 2]) {
+				return m + 1;
+			}
+		}
+		return -1;
+	}
+
+	private static boolean equalsIgnoreCase(ByteBuf in, int offset, int length, AsciiString name) {
+		if (length != name.length()) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (upperCase(in.getByte(offset + i)) != upperCase(name.byteAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static byte upperCase(byte b) {
+		return b >= 'a' && b <= 'z' ? (byte) (b - 32) : b;
+	}
+
+	private static void expect(Token token, Token expected) {
+		if (token != expected) {
+			throw new CorruptedFrameException("FETCH: " + expected + " expected, got " + token);
+		}
+	}
+
+	/**
+	 * Drops the response being decoded and expects a new one.
+	 */
+	void reset() {
+		if (response != null) {
+			response.release();
+			response = null;
+		}
+		values.reset();
+		key = null;
+		section = null;
+		state = State.OPEN;
+	}
+}
@@ -0,0 +1,376 @@
+/*
+ * Copyright 2016 Laurent Belmonte <laurent.belmonte@gmail.com>
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.imap;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.util.AsciiString;
+
+/**
+ * A <code>* n FETCH (...)</code> response decoded with
+ * {@link ImapDecoderConfig#typedFetch(boolean)}. UID, FLAGS, RFC822.SIZE,
+ * INTERNALDATE and MODSEQ are held in primitive fields, ENVELOPE and
+ * BODYSTRUCTURE as lists read through {@link Envelope} and
+ * {@link BodyStructure} views, and any other attribute in
+ * {@link #getAttributes()}.
+ */
+public class FetchResponse extends ImapResponse.AbstractImapResponse {
+
+	public static final int ANSWERED = 1;
+	public static final int FLAGGED = 1 << 1;
+	public static final int DELETED = 1 << 2;
+	public static final int SEEN = 1 << 3;
+	public static final int DRAFT = 1 << 4;
+	public static final int RECENT = 1 << 5;
+
+	static final AsciiString[] FLAG_NAMES = { AsciiString.of("\\Answered"), AsciiString.of("\\Flagged"),
+			AsciiString.of("\\Deleted"), AsciiString.of("\\Seen"), AsciiString.of("\\Draft"),
+			AsciiString.of("\\Recent") };
+
+	static final int NO_DATE = Integer.MIN_VALUE;
+
+	private static final DateTimeFormatter INTERNALDATE_FORMAT = DateTimeFormatter
+			.ofPattern("dd-MMM-yyyy HH:mm:ss xx", Locale.ENGLISH);
+
+	final int number;
+	long uid = -1;
+	long size = -1;
+	long modSeq = -1;
+	long internalDate;
+	// minutes east of UTC, NO_DATE without INTERNALDATE
+	int internalDateOffset = NO_DATE;
+	boolean hasFlags;
+	int flags;
+	List<AsciiString> keywords;
+	ListParameter envelope;
+	ListParameter bodyStructure;
+	final ListParameter attributes;
+	private List<CommandParameter> parameters;
+
+	public FetchResponse(int number) {
+		this(number, new ListParameter());
+	}
+
+	public FetchResponse(int number, ListParameter attributes) {
+		this.number = number;
+		this.attributes = attributes;
+	}
+
+	public int getNumber() {
+		return number;
+	}
+
+	public ImapKeyword getKeyword() {
+		return ImapKeyword.FETCH;
+	}
+
+	/**
+	 * The UID, or -1 when not fetched.
+	 */
+	public long getUid() {
+		return uid;
+	}
+
+	/**
+	 * The RFC822.SIZE, or -1 when not fetched.
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * The MODSEQ, or -1 when not fetched.
+	 */
+	public long getModSeq() {
+		return modSeq;
+	}
+
+	public boolean hasFlags() {
+		return hasFlags;
+	}
+
+	/**
+	 * The system flags as a bit set of {@link #ANSWERED}, {@link #FLAGGED},
+	 * {@link #DELETED}, {@link #SEEN}, {@link #DRAFT} and {@link #RECENT}.
+	 */
+	public int getFlags() {
+		return flags;
+	}
+
+	public boolean hasFlag(int flag) {
+		return (flags & flag) == flag;
+	}
+
+	/**
+	 * The flags other than system flags, as sent.
+	 */
+	public List<AsciiString> getKeywords() {
+		return keywords == null ? Collections.emptyList() : keywords;
+	}
+
+	public boolean hasInternalDate() {
+		return internalDateOffset != NO_DATE;
+	}
+
+	/**
+	 * The INTERNALDATE in milliseconds since the epoch, see
+	 * {@link #hasInternalDate()}.
+	 */
+	public long getInternalDateMillis() {
+		return internalDate;
+	}
+
+	/**
+	 * The INTERNALDATE with its time zone, or <code>null</code>.
+	 */
+	public OffsetDateTime getInternalDate() {
+		if (!hasInternalDate()) {
+			return null;
+		}
+		return OffsetDateTime.ofInstant(Instant.ofEpochMilli(internalDate),
+				ZoneOffset.ofTotalSeconds(internalDateOffset * 60));
+	}
+
+	/**
+	 * The ENVELOPE, or <code>null</code> when not fetched.
+	 */
+	public Envelope getEnvelope() {
+		return envelope == null ? null : new Envelope(envelope);
+	}
+
+	/**
+	 * The BODYSTRUCTURE, or <code>null</code> when not fetched.
+	 */
+	public BodyStructure getBodyStructure() {
+		return bodyStructure == null ? null : new BodyStructure(bodyStructure);
+	}
+
+	/**
+	 * The attributes without a field of their own, such as
+	 * <code>BODY[]</code>, as key and value pairs.
+	 */
+	public ListParameter getAttributes() {
+		return attributes;
+	}
+
+	/**
+	 * The value of an attribute of {@link #getAttributes()}, or
+	 * <code>null</code>.
+	 */
+	public CommandParameter get(CharSequence key) {
+		return attributes.get(key);
+	}
+
+	@Override
+	public boolean tagged() {
+		return false;
+	}
+
+	/**
+	 * The response as a generic parameter list, a single list of every
+	 * attribute, built on first call. It shares the content of this response
+	 * and must not be released on its own.
+	 */
+	@Override
+	public List<CommandParameter> getParameters() {
+		if (parameters == null) {
+			ListParameter list = new ListParameter();
+			if (uid >= 0) {
+				list.add(new AtomParameter(ImapKeyword.UID.asciiName()))
+						.add(ParameterDecoder.numberParameter(uid));
+			}
+			if (hasFlags) {
+				ListParameter flagList = new ListParameter();
+				for (int i = 0; i < FLAG_NAMES.length; i++) {
+					if ((flags & (1 << i)) != 0) {
+						flagList.add(new AtomParameter(FLAG_NAMES[i]));
+					}
+				}
+				for (AsciiString keyword : getKeywords()) {
+					flagList.add(new AtomParameter(keyword));
+				}
+				list.add(new AtomParameter(ImapKeyword.FLAGS.asciiName())).add(flagList);
+			}
+			if (size >= 0) {
+				list.add(new AtomParameter(ImapKeyword.RFC822_SIZE.asciiName()))
+						.add(ParameterDecoder.numberParameter(size));
+			}
+			if (hasInternalDate()) {
+				list.add(new AtomParameter(ImapKeyword.INTERNALDATE.asciiName()))
+						.add(new QuotedStringParameter(getInternalDate().format(INTERNALDATE_FORMAT)));
+			}
+			if (modSeq >= 0) {
+				list.add(new AtomParameter(ImapKeyword.MODSEQ.asciiName()))
+						.add(new ListParameter().add(ParameterDecoder.numberParameter(modSeq)));
+			}
+			if (envelope != null) {
+				list.add(new AtomParameter(ImapKeyword.ENVELOPE.asciiName())).add(envelope);
+			}
+			if (bodyStructure != null) {
+				list.add(new AtomParameter(ImapKeyword.BODYSTRUCTURE.asciiName())).add(bodyStructure);
+			}
+			for (CommandParameter attribute : attributes.getItems()) {
+				list.add(attribute);
+			}
+			parameters = Collections.singletonList(list);
+		}
+		return parameters;
+	}
+
+	@Override
+	public boolean partial() {
+		return false;
+	}
+
+	@Override
+	public FetchResponse retainedDuplicate() {
+		FetchResponse duplicate = new FetchResponse(number, attributes.retainedDuplicate());
+		duplicate.uid = uid;
+		duplicate.size = size;
+		duplicate.modSeq = modSeq;
+		duplicate.internalDate = internalDate;
+		duplicate.internalDateOffset = internalDateOffset;
+		duplicate.hasFlags = hasFlags;
+		duplicate.flags = flags;
+		duplicate.keywords = keywords == null ? null : new ArrayList<>(keywords);
+		duplicate.envelope = envelope == null ? null : envelope.retainedDuplicate();
+		duplicate.bodyStructure = bodyStructure == null ? null : bodyStructure.retainedDuplicate();
+		return duplicate;
+	}
+
+	@Override
+	public ImapResponse touch(Object hint) {
+		attributes.touch(hint);
+		if (envelope != null) {
+			envelope.touch(hint);
+		}
+		if (bodyStructure != null) {
+			bodyStructure.touch(hint);
+		}
+		return this;
+	}
+
+	@Override
+	protected void deallocate() {
+		attributes.release();
+		if (envelope != null) {
+			envelope.release();
+		}
+		if (bodyStructure != null) {
+			bodyStructure.release();
+		}
+	}
+
+	@Override
+	public void write(ByteBuf buf) {
+		buf.writeByte('*');
+		buf.writeByte(' ');
+		ByteBufUtil.writeAscii(buf, Integer.toString(number));
+		buf.writeByte(' ');
+		ByteBufUtil.writeAscii(buf, ImapKeyword.FETCH.toString());
+		CommandParameter.write(buf, getParameters());
+	}
+
+	@Override
+	public void write(ImapOutput out) {
+		ByteBuf buf = out.buffer();
+		buf.writeByte('*');
+		buf.writeByte(' ');
+		ByteBufUtil.writeAscii(buf, Integer.toString(number));
+		buf.writeByte(' ');
+		ByteBufUtil.writeAscii(buf, ImapKeyword.FETCH.toString());
+		CommandParameter.write(out, getParameters());
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + attributes.hashCode();
+		result = prime * result + ((bodyStructure == null) ? 0 : bodyStructure.hashCode());
+		result = prime * result + ((envelope == null) ? 0 : envelope.hashCode());
+		result = prime * result + flags;
+		result = prime * result + (hasFlags ? 1231 : 1237);
+		result = prime * result + (int) (internalDate ^ (internalDate >>> 32));
+		result = prime * result + internalDateOffset;
+		result = prime * result + getKeywords().hashCode();
+		result = prime * result + (int) (modSeq ^ (modSeq >>> 32));
+		result = prime * result + number;
+		result = prime * result + (int) (size ^ (size >>> 32));
+		result = prime * result + (int) (uid ^ (uid >>> 32));
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		FetchResponse other = (FetchResponse) obj;
+		if (!attributes.equals(other.attributes))
+			return false;
+		if (bodyStructure == null) {
+			if (other.bodyStructure != null)
+				return false;
+		} else if (!bodyStructure.equals(other.bodyStructure))
+			return false;
+		if (envelope == null) {
+			if (other.envelope != null)
+				return false;
+		} else if (!envelope.equals(other.envelope))
+			return false;
+		if (flags != other.flags)
+			return false;
+		if (hasFlags != other.hasFlags)
+			return false;
+		if (internalDate != other.internalDate)
+			return false;
+		if (internalDateOffset != other.internalDateOffset)
+			return false;
+		if (!getKeywords().equals(other.getKeywords()))
+			return false;
+		if (modSeq != other.modSeq)
+			return false;
+		if (number != other.number)
+			return false;
+		if (size != other.size)
+			return false;
+		if (uid != other.uid)
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "FetchResponse [number=" + number + ", uid=" + uid + ", flags=" + flags + ", keywords="
+				+ getKeywords() + ", size=" + size + ", internalDate=" + getInternalDate() + ", modSeq=" + modSeq
+				+ ", envelope=" + envelope + ", bodyStructure=" + bodyStructure + ", attributes=" + attributes
+				+ "]";
+	}
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2016 Laurent Belmonte <laurent.belmonte@gmail.com>
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.imap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.DefaultFileRegion;
+
+/**
+ * A literal whose content is read from a file. Written through an
+ * {@link ImapOutput} it becomes a {@link DefaultFileRegion}, so the
+ * transport can send it with <code>sendfile</code> without copying it onto
+ * the heap.
+ */
+public class FileLiteralParameter implements CommandParameter {
+
+	private final File file;
+	private final long position;
+	private final long length;
+
+	public FileLiteralParameter(File file) {
+		this(file, 0, file.length());
+	}
+
+	public FileLiteralParameter(File file, long position, long length) {
+		if (position < 0 || length < 0) {
+			throw new IllegalArgumentException("position: " + position + ", length: " + length);
+		}
+		this.file = file;
+		this.position = position;
+		this.length = length;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public long getPosition() {
+		return position;
+	}
+
+	public long getLength() {
+		return length;
+	}
+
+	@Override
+	public boolean isPartial() {
+		return false;
+	}
+
+	/**
+	 * Copies the file content into the buffer. Prefer
+	 * {@link #write(ImapOutput)} which does not.
+	 */
+	@Override
+	public void write(ByteBuf buf) {
+		writeLength(buf);
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			FileChannel channel = raf.getChannel();
+			long read = 0;
+			while (read < length) {
+				int n = buf.writeBytes(channel, position + read, (int) Math.min(length - read, Integer.MAX_VALUE));
+				if (n < 0) {
+					throw new IOException(file + " is shorter than " + (position + length) + " bytes");
+				}
+				read += n;
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@Override
+	public void write(ImapOutput out) {
+		writeLength(out.buffer());
+		if (length > 0) {
+			out.add(new DefaultFileRegion(file, position, length));
+		}
+	}
+
+	private void writeLength(ByteBuf buf) {
+		buf.writeByte('{');
+		ByteBufUtil.writeAscii(buf, Long.toString(length));
+		buf.writeByte('}');
+		buf.writeByte('\r');
+		buf.writeByte('\n');
+	}
+
+	@Override
+	public String toString() {
+		return "{" + length + "}\r\n[" + file + "@" + position + "]";
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((file == null) ? 0 : file.hashCode());
+		result = prime * result + (int) (length ^ (length >>> 32));
+		result = prime * result + (int) (position ^ (position >>> 32));
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		FileLiteralParameter other = (FileLiteralParameter) obj;
+		if (file == null) {
+			if (other.file != null)
+				return false;
+		} else if (!file.equals(other.file))
+			return false;
+		if (length != other.length)
+			return false;
+		if (position != other.position)
+			return false;
+		return true;
+	}
+
+}
@@ -1,14 +1,18 @@
 package io.netty.handler.codec.imap;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.ByteBufUtil;
+import io.netty.util.AsciiString;
 
 public class HumanReadableParameter implements CommandParameter {
 
-	private final String message;
+	private final AsciiString message;
 
-	public HumanReadableParameter(String message) {
-		this.message = message;
+	public HumanReadableParameter(CharSequence message) {
+		this.message = message == null ? null : AsciiString.of(message);
+	}
+
+	public AsciiString getMessage() {
+		return message;
 	}
 
 	@Override
@@ -48,7 +52,7 @@ public class HumanReadableParameter implements CommandParameter {
 
 	@Override
 	public void write(ByteBuf buf) {
-		ByteBufUtil.writeAscii(buf, message);
+		buf.writeBytes(message.array(), message.arrayOffset(), message.length());
 	}
 
 }
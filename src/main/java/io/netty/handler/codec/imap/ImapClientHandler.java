@@ -0,0 +1,304 @@
+/*
+ * Copyright 2016 Laurent Belmonte <laurent.belmonte@gmail.com>
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.imap;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.AbstractReferenceCounted;
+
+/**
+ * Client side handler pipelining commands: {@link #send(String, List)} tags
+ * a command, writes it and returns a future completed by its tagged status
+ * response. Many commands may be in flight on the connection, up to
+ * {@code maxInFlight}, further ones wait for a slot.
+ *
+ * Untagged responses received while commands are in flight are collected by
+ * the oldest of them, except an {@link ESearchResponse} whose correlator
+ * names another command; other messages, such as BYE, unsolicited responses
+ * or responses to commands written by someone else, go down the pipeline. It
+ * sits behind {@link ImapResponseDecoder}, and behind an
+ * {@link ImapLiteralAggregator} when literals are streamed. The caller
+ * chooses what to pipeline: commands that change the connection state, such
+ * as STARTTLS or IDLE, or that use synchronizing literals should wait for the
+ * previous ones.
+ */
+public class ImapClientHandler extends ChannelDuplexHandler {
+
+	/**
+	 * The outcome of a command: its tagged status response and the untagged
+	 * responses collected on the way. Releasing it releases them.
+	 */
+	public static final class Result extends AbstractReferenceCounted {
+
+		private final String tag;
+		private final ImapResponse.StatusResponse status;
+		private final List<ImapResponse> responses;
+
+		Result(String tag, ImapResponse.StatusResponse status, List<ImapResponse> responses) {
+			this.tag = tag;
+			this.status = status;
+			this.responses = responses;
+		}
+
+		public String getTag() {
+			return tag;
+		}
+
+		public ImapResponse.StatusResponse getStatus() {
+			return status;
+		}
+
+		public boolean isOk() {
+			return status instanceof ImapResponse.Ok;
+		}
+
+		/**
+		 * The untagged responses, empty when they went to a listener.
+		 */
+		public List<ImapResponse> getResponses() {
+			return responses;
+		}
+
+		@Override
+		public Result touch(Object hint) {
+			status.touch(hint);
+			for (ImapResponse response : responses) {
+				response.touch(hint);
+			}
+			return this;
+		}
+
+		@Override
+		protected void deallocate() {
+			status.release();
+			for (ImapResponse response : responses) {
+				response.release();
+			}
+		}
+
+		@Override
+		public String toString() {
+			return "Result [tag=" + tag + ", status=" + status + ", responses=" + responses + "]";
+		}
+	}
+
+	private static final class Pending {
+		final String command;
+		final List<CommandParameter> parameters;
+		final Consumer<ImapResponse> listener;
+		final CompletableFuture<Result> future;
+		String tag;
+		List<ImapResponse> responses;
+
+		Pending(String command, List<CommandParameter> parameters, Consumer<ImapResponse> listener,
+				CompletableFuture<Result> future) {
+			this.command = command;
+			this.parameters = parameters;
+			this.listener = listener;
+			this.future = future;
+		}
+
+		void add(ImapResponse response) {
+			if (listener != null) {
+				listener.accept(response);
+				return;
+			}
+			if (responses == null) {
+				responses = new ArrayList<>();
+			}
+			responses.add(response);
+		}
+
+		void fail(Throwable cause) {
+			if (responses != null) {
+				for (ImapResponse response : responses) {
+					response.release();
+				}
+				responses = null;
+			}
+			future.completeExceptionally(cause);
+		}
+	}
+
+	private final String tagPrefix;
+	private final int maxInFlight;
+	// in flight commands by tag, oldest first
+	private final Map<String, Pending> inFlight = new LinkedHashMap<>();
+	private final ArrayDeque<Pending> waiting = new ArrayDeque<>();
+	// read by send from any thread
+	private volatile ChannelHandlerContext ctx;
+	private long nextTag;
+	private boolean closed;
+
+	public ImapClientHandler() {
+		this("C", Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @param tagPrefix
+	 *            the prefix of generated tags, followed by a counter
+	 * @param maxInFlight
+	 *            the number of commands written before their completion
+	 */
+	public ImapClientHandler(String tagPrefix, int maxInFlight) {
+		if (maxInFlight < 1) {
+			throw new IllegalArgumentException("maxInFlight: " + maxInFlight + " (expected: > 0)");
+		}
+		this.tagPrefix = tagPrefix;
+		this.maxInFlight = maxInFlight;
+	}
+
+	public CompletableFuture<Result> send(String command, List<CommandParameter> parameters) {
+		return send(command, parameters, null);
+	}
+
+	/**
+	 * Sends a command, from any thread. Its parameters are released once
+	 * written.
+	 *
+	 * @param listener
+	 *            receives the untagged responses on the event loop and must
+	 *            release them, or <code>null</code> to collect them in the
+	 *            {@link Result}
+	 */
+	public CompletableFuture<Result> send(String command, List<CommandParameter> parameters,
+			Consumer<ImapResponse> listener) {
+		ChannelHandlerContext ctx = this.ctx;
+		if (ctx == null) {
+			throw new IllegalStateException("not added to a pipeline");
+		}
+		Pending pending = new Pending(command, parameters, listener, new CompletableFuture<>());
+		if (ctx.executor().inEventLoop()) {
+			submit(pending);
+		} else {
+			ctx.executor().execute(() -> submit(pending));
+		}
+		return pending.future;
+	}
+
+	/**
+	 * The number of commands written and not completed yet.
+	 */
+	public int inFlight() {
+		return inFlight.size();
+	}
+
+	private void submit(Pending pending) {
+		if (closed) {
+			CommandParameter.release(pending.parameters);
+			pending.fail(new ClosedChannelException());
+		} else if (inFlight.size() < maxInFlight) {
+			write(pending);
+		} else {
+			waiting.add(pending);
+		}
+	}
+
+	private void write(Pending pending) {
+		String tag = tagPrefix + (++nextTag);
+		pending.tag = tag;
+		inFlight.put(tag, pending);
+		ctx.writeAndFlush(new ImapCommand(tag, pending.command, pending.parameters))
+				.addListener((ChannelFutureListener) f -> {
+					if (!f.isSuccess() && inFlight.remove(tag) != null) {
+						pending.fail(f.cause());
+						writeWaiting();
+					}
+				});
+	}
+
+	private void writeWaiting() {
+		while (!closed && inFlight.size() < maxInFlight && !waiting.isEmpty()) {
+			write(waiting.poll());
+		}
+	}
+
+	@Override
+	public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+		this.ctx = ctx;
+	}
+
+	@Override
+	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+		if (msg instanceof ImapResponse && !inFlight.isEmpty()) {
+			ImapResponse response = (ImapResponse) msg;
+			if (!response.tagged() && !(response instanceof ImapResponse.ByeResponse)) {
+				Pending pending = null;
+				if (response instanceof ESearchResponse && ((ESearchResponse) response).getTag() != null) {
+					pending = inFlight.get(((ESearchResponse) response).getTag());
+				}
+				if (pending == null) {
+					pending = inFlight.values().iterator().next();
+				}
+				pending.add(response);
+				return;
+			} else if (response instanceof ImapResponse.GenericReponse) {
+				ImapResponse.GenericReponse status = (ImapResponse.GenericReponse) response;
+				Pending pending = inFlight.remove(status.tag);
+				if (pending != null) {
+					List<ImapResponse> responses = pending.responses != null ? pending.responses
+							: Collections.emptyList();
+					Result result = new Result(status.tag, status, responses);
+					if (!pending.future.complete(result)) {
+						// cancelled by the caller
+						result.release();
+					}
+					writeWaiting();
+					return;
+				}
+			}
+		}
+		ctx.fireChannelRead(msg);
+	}
+
+	@Override
+	public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+		failAll();
+		ctx.fireChannelInactive();
+	}
+
+	@Override
+	public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+		failAll();
+	}
+
+	private void failAll() {
+		closed = true;
+		ClosedChannelException cause = new ClosedChannelException();
+		for (Iterator<Pending> it = inFlight.values().iterator(); it.hasNext();) {
+			Pending pending = it.next();
+			it.remove();
+			pending.fail(cause);
+		}
+		Pending pending;
+		while ((pending = waiting.poll()) != null) {
+			CommandParameter.release(pending.parameters);
+			pending.fail(cause);
+		}
+	}
+}
@@ -15,21 +15,55 @@
  */
 package io.netty.handler.codec.imap;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufUtil;
+import io.netty.util.AbstractReferenceCounted;
+import io.netty.util.Recycler;
 
-public class ImapCommand {
+/**
+ * A command line. Releasing the last reference to it releases the buffers of
+ * its literal parameters.
+ */
+public class ImapCommand extends AbstractReferenceCounted {
 
 	private String tag;
 	private List<CommandParameter> parameters;
 	private String command;
 
+	private static final Recycler<ImapCommand> RECYCLER = new Recycler<ImapCommand>() {
+		@Override
+		protected ImapCommand newObject(Handle<ImapCommand> handle) {
+			return new ImapCommand(handle);
+		}
+	};
+
+	private final Recycler.Handle<ImapCommand> handle;
+
 	public ImapCommand(String tag, String command, List<CommandParameter> parameters) {
 		this.tag = tag;
 		this.command = command;
 		this.parameters = parameters;
+		this.handle = null;
+	}
+
+	private ImapCommand(Recycler.Handle<ImapCommand> handle) {
+		this.parameters = new ArrayList<>();
+		this.handle = handle;
+	}
+
+	/**
+	 * A pooled command going back to the pool on its last release, its
+	 * parameters are added to {@link #getParameters()}.
+	 */
+	static ImapCommand newInstance(String tag, String command) {
+		ImapCommand cmd = RECYCLER.get();
+		cmd.setRefCnt(1);
+		cmd.tag = tag;
+		cmd.command = command;
+		return cmd;
 	}
 
 	public String getTag() {
@@ -44,6 +78,16 @@ public class ImapCommand {
 		return command;
 	}
 
+	/**
+	 * The command name as a keyword, to dispatch with a <code>switch</code>
+	 * instead of comparing strings.
+	 * 
+	 * @return the keyword or <code>null</code> for an unknown command
+	 */
+	public ImapKeyword getKeyword() {
+		return ImapKeyword.of(command);
+	}
+
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
 
@@ -77,6 +121,49 @@ public class ImapCommand {
 		return parameters.get(parameters.size() - 1);
 	}
 
+	/**
+	 * A command sharing the literal content of this one, with its own reader
+	 * indexes and reference count.
+	 */
+	public ImapCommand retainedDuplicate() {
+		return new ImapCommand(tag, command, CommandParameter.retainedDuplicate(parameters));
+	}
+
+	@Override
+	public ImapCommand retain() {
+		super.retain();
+		return this;
+	}
+
+	@Override
+	public ImapCommand retain(int increment) {
+		super.retain(increment);
+		return this;
+	}
+
+	@Override
+	public ImapCommand touch() {
+		super.touch();
+		return this;
+	}
+
+	@Override
+	public ImapCommand touch(Object hint) {
+		CommandParameter.touch(parameters, hint);
+		return this;
+	}
+
+	@Override
+	protected void deallocate() {
+		CommandParameter.release(parameters);
+		if (handle != null) {
+			parameters.clear();
+			tag = null;
+			command = null;
+			handle.recycle(this);
+		}
+	}
+
 	public void write(ByteBuf buf) {
 		ByteBufUtil.writeAscii(buf, tag);
 		buf.writeByte(' ');
@@ -86,4 +173,12 @@ public class ImapCommand {
 		}
 	}
 
+	public void write(ImapOutput out) {
+		ByteBuf buf = out.buffer();
+		ByteBufUtil.writeAscii(buf, tag);
+		buf.writeByte(' ');
+		ByteBufUtil.writeAscii(buf, command);
+		CommandParameter.write(out, parameters);
+	}
+
 }
@@ -22,7 +22,21 @@ public class ImapCommandBuilder {
 
 	private String tag;
 	private String command;
-	private List<CommandParameter> params = new ArrayList<>(30);
+	private List<CommandParameter> params;
+	private final boolean pooled;
+
+	public ImapCommandBuilder() {
+		this(false);
+	}
+
+	/**
+	 * @param pooled
+	 *            whether built commands come from a pool, see
+	 *            {@link ImapDecoderConfig#pooledMessages(boolean)}
+	 */
+	public ImapCommandBuilder(boolean pooled) {
+		this.pooled = pooled;
+	}
 
 	public ImapCommandBuilder tag(String tag) {
 		this.tag = tag;
@@ -35,10 +49,46 @@ public class ImapCommandBuilder {
 	}
 
 	public ImapCommand build() {
-		return new ImapCommand(tag, command, new ArrayList<>(params));
+		if (pooled) {
+			ImapCommand cmd = ImapCommand.newInstance(tag, command);
+			if (params != null) {
+				cmd.getParameters().addAll(params);
+				params.clear();
+			}
+			return cmd;
+		}
+		ImapCommand cmd = new ImapCommand(tag, command, params != null ? params : new ArrayList<>(0));
+		params = null;
+		return cmd;
+	}
+
+	/**
+	 * Readies the builder for the next command. The parameter list is only
+	 * kept when pooled, otherwise it was handed over to the last command.
+	 */
+	public void reset() {
+		tag = null;
+		command = null;
+		if (pooled && params != null) {
+			params.clear();
+		} else {
+			params = null;
+		}
+	}
+
+	/**
+	 * Releases the parameters of a command dropped before it was built, then
+	 * resets the builder.
+	 */
+	public void release() {
+		CommandParameter.release(params);
+		reset();
 	}
 
 	public void addParam(CommandParameter param) {
+		if (params == null) {
+			params = new ArrayList<>();
+		}
 		params.add(param);
 	}
 }
@@ -31,16 +31,35 @@ public class ImapCommandDecoder extends ByteToMessageDecoder {
 	}
 
 	private State currentState;
-	private AtomDecoder atomDecoder = new AtomDecoder();
-	private ImapCommandBuilder builder;
-	private ParameterDecoder paramDecoder = new ParameterDecoder(false);
+	private final AtomDecoder atomDecoder = new AtomDecoder();
+	private final ImapCommandBuilder builder;
+	private final ParameterDecoder paramDecoder;
+	private LiteralStream literalStream;
 
 	public ImapCommandDecoder() {
+		this(new ImapDecoderConfig());
+	}
+
+	public ImapCommandDecoder(ImapDecoderConfig config) {
+		builder = new ImapCommandBuilder(config.isPooledMessages());
+		paramDecoder = new ParameterDecoder(false, config);
+		if (config.isStreamLiterals()) {
+			literalStream = new LiteralStream();
+		}
 		resetNow();
 	}
 
 	@Override
 	protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+		try {
+			decodeMessage(ctx, in, out);
+		} catch (Exception e) {
+			discard();
+			throw e;
+		}
+	}
+
+	private void decodeMessage(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
 		switch (currentState) {
 		case READ_TAG: {
 			String atom = atomDecoder.parse(in);
@@ -67,12 +86,13 @@ public class ImapCommandDecoder extends ByteToMessageDecoder {
 		case READ_PARAMTERS: {
 			CommandParameter param = null;
 			while ((param = paramDecoder.next(ctx, in)) != null) {
-				builder.addParam(param);
+				addParam(param, out);
 			}
 
 			if (paramDecoder.getState() == ParameterDecoder.State.Ended) {
-				ImapCommand r = builder.build();
-				out.add(r);
+				if (literalStream == null || !literalStream.end(out)) {
+					out.add(builder.build());
+				}
 				resetNow();
 				break;
 			}
@@ -81,11 +101,38 @@ public class ImapCommandDecoder extends ByteToMessageDecoder {
 
 	}
 
+	private void addParam(CommandParameter param, List<Object> out) {
+		if (literalStream == null || !literalStream.add(param, out)) {
+			builder.addParam(param);
+			if (literalStream != null && param.isPartial()) {
+				out.add(builder.build());
+				literalStream.start();
+			}
+		}
+	}
+
+	@Override
+	protected void handlerRemoved0(ChannelHandlerContext ctx) throws Exception {
+		// drops a literal being spooled
+		discard();
+	}
+
+	/**
+	 * Drops the message being decoded, releasing what was read of it.
+	 */
+	private void discard() {
+		builder.release();
+		resetNow();
+	}
+
 	private void resetNow() {
-		builder = new ImapCommandBuilder();
+		builder.reset();
 		atomDecoder.reset();
 		currentState = State.READ_TAG;
 		paramDecoder.reset();
+		if (literalStream != null) {
+			literalStream.reset();
+		}
 	}
 
 }
@@ -2,21 +2,34 @@ package io.netty.handler.codec.imap;
 
 import java.util.List;
 
-import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageEncoder;
 
+/**
+ * Encodes {@link ImapCommand} and streamed {@link ImapLiteralContent} messages.
+ * Literal payloads are emitted as retained buffers of their own so they are
+ * written without being copied. Flushing is left to the caller.
+ */
 public class ImapCommandEncoder extends MessageToMessageEncoder<Object> {
 
+	@Override
+	public boolean acceptOutboundMessage(Object msg) throws Exception {
+		return msg instanceof ImapCommand || msg instanceof ImapLiteralContent;
+	}
+
 	@Override
 	protected void encode(ChannelHandlerContext ctx, Object msg, List<Object> out) throws Exception {
+		ImapOutput output = new ImapOutput(ctx.alloc(), out);
 		if (msg instanceof ImapCommand) {
 			ImapCommand cmd = (ImapCommand) msg;
-			ByteBuf buf = ctx.alloc().buffer();
-			cmd.write(buf);
-			buf.writeByte('\r').writeByte('\n');
-			ctx.writeAndFlush(buf);
+			cmd.write(output);
+			if (!cmd.partial()) {
+				output.endLine();
+			}
+		} else {
+			output.write((ImapLiteralContent) msg);
 		}
+		output.finish();
 	}
 
 }
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2016 Laurent Belmonte <laurent.belmonte@gmail.com>
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.imap;
+
+import java.io.File;
+
+/**
+ * Options shared by {@link ImapCommandDecoder} and {@link ImapResponseDecoder}.
+ * The decoders keep a reference to it rather than a copy, so one instance
+ * can serve every connection but must not be changed once in use.
+ */
+public class ImapDecoderConfig {
+
+	private boolean zeroCopyLiterals;
+	private boolean streamLiterals;
+	private boolean pooledMessages;
+	private boolean structuredLists;
+	private boolean typedFetch;
+	private boolean typedSearch;
+	private boolean sequenceSets;
+	private int spoolThreshold = -1;
+	private File spoolDirectory;
+
+	/**
+	 * When enabled, {@link LiteralParameter} and {@link ChunkParameter} hold
+	 * retained slices of the inbound buffer instead of copies. A slice keeps
+	 * the whole inbound buffer alive until it is released.
+	 */
+	public ImapDecoderConfig zeroCopyLiterals(boolean zeroCopyLiterals) {
+		this.zeroCopyLiterals = zeroCopyLiterals;
+		return this;
+	}
+
+	public boolean isZeroCopyLiterals() {
+		return zeroCopyLiterals;
+	}
+
+	/**
+	 * When enabled, a message holding a literal is emitted as soon as the
+	 * literal length is read: its last parameter is a partial
+	 * {@link LiteralParameter} without content. The literal data follows as
+	 * {@link ImapLiteralContent} messages ended by a
+	 * {@link LastImapLiteralContent}.
+	 */
+	public ImapDecoderConfig streamLiterals(boolean streamLiterals) {
+		this.streamLiterals = streamLiterals;
+		return this;
+	}
+
+	public boolean isStreamLiterals() {
+		return streamLiterals;
+	}
+
+	/**
+	 * When enabled, {@link ImapCommand}, {@link ImapResponse.ServerResponse}
+	 * and {@link ImapResponse.MessageStatusResponse} instances and their
+	 * parameter lists come from a {@link io.netty.util.Recycler} and go back
+	 * to it once released: they must not be used after their last
+	 * {@link io.netty.util.ReferenceCounted#release()}.
+	 */
+	public ImapDecoderConfig pooledMessages(boolean pooledMessages) {
+		this.pooledMessages = pooledMessages;
+		return this;
+	}
+
+	public boolean isPooledMessages() {
+		return pooledMessages;
+	}
+
+	/**
+	 * When enabled, a parenthesized list is decoded as a single
+	 * {@link ListParameter} holding its items instead of an
+	 * {@link OpenListParameter}, the items and a {@link CloseListParameter}.
+	 * Literals inside a list are always delivered whole, never streamed.
+	 */
+	public ImapDecoderConfig structuredLists(boolean structuredLists) {
+		this.structuredLists = structuredLists;
+		return this;
+	}
+
+	public boolean isStructuredLists() {
+		return structuredLists;
+	}
+
+	/**
+	 * When enabled, {@link ImapResponseDecoder} decodes
+	 * <code>* n FETCH (...)</code> lines into {@link FetchResponse}s instead
+	 * of {@link ImapResponse.MessageStatusResponse}s. Their literals are
+	 * delivered whole, never streamed.
+	 */
+	public ImapDecoderConfig typedFetch(boolean typedFetch) {
+		this.typedFetch = typedFetch;
+		return this;
+	}
+
+	public boolean isTypedFetch() {
+		return typedFetch;
+	}
+
+	/**
+	 * When enabled, {@link ImapResponseDecoder} decodes <code>* SEARCH</code>
+	 * and <code>* SORT</code> lines into {@link SearchResponse}s holding
+	 * their numbers in an int array, and <code>* ESEARCH</code> lines into
+	 * {@link ESearchResponse}s, instead of
+	 * {@link ImapResponse.ServerResponse}s.
+	 */
+	public ImapDecoderConfig typedSearch(boolean typedSearch) {
+		this.typedSearch = typedSearch;
+		return this;
+	}
+
+	public boolean isTypedSearch() {
+		return typedSearch;
+	}
+
+	/**
+	 * When enabled, atoms such as <code>1:500,502,600:*</code> are decoded as
+	 * {@link SequenceSetParameter}s instead of {@link AtomParameter}s. A
+	 * single number stays a {@link NumericParameter} and a lone
+	 * <code>*</code> an {@link AtomParameter}.
+	 */
+	public ImapDecoderConfig sequenceSets(boolean sequenceSets) {
+		this.sequenceSets = sequenceSets;
+		return this;
+	}
+
+	public boolean isSequenceSets() {
+		return sequenceSets;
+	}
+
+	/**
+	 * When enabled, literals of at least <code>threshold</code> bytes are
+	 * written to a temporary file in <code>directory</code> (the default
+	 * temporary directory when <code>null</code>) as they arrive instead of
+	 * being buffered, and emitted as a single {@link LiteralParameter} over a
+	 * read-only mapping of that file. Streamed literals are never spooled.
+	 */
+	public ImapDecoderConfig spoolLiterals(int threshold, File directory) {
+		if (threshold < 0) {
+			throw new IllegalArgumentException("threshold: " + threshold);
+		}
+		this.spoolThreshold = threshold;
+		this.spoolDirectory = directory;
+		return this;
+	}
+
+	public boolean isSpoolLiterals() {
+		return spoolThreshold >= 0;
+	}
+
+	public int getSpoolThreshold() {
+		return spoolThreshold;
+	}
+
+	public File getSpoolDirectory() {
+		return spoolDirectory;
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2016 Laurent Belmonte <laurent.belmonte@gmail.com>
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.imap;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.concurrent.Future;
+
+/**
+ * Coalesces the flushes of IMAP messages so that a burst, such as the FETCH
+ * lines of a response or commands queued by a client, reaches the socket in a
+ * few gathering writes rather than one per message. It goes after the
+ * encoders, where it sees {@link ImapResponse} and {@link ImapCommand}
+ * objects.
+ *
+ * While a read is in progress flushes wait for the end of the read, as with
+ * Netty's <code>FlushConsolidationHandler</code>. Otherwise a flush following
+ * a tagged status response or a BYE, which a peer waits for, goes through at
+ * once, and other flushes are postponed to the end of the current event loop
+ * task. At most <code>explicitFlushAfterFlushes</code> flushes are held back.
+ */
+public class ImapFlushConsolidationHandler extends ChannelDuplexHandler {
+
+	public static final int DEFAULT_EXPLICIT_FLUSH_AFTER_FLUSHES = 256;
+
+	private final int explicitFlushAfterFlushes;
+	private final Runnable flushTask;
+	private ChannelHandlerContext ctx;
+	private int flushPendingCount;
+	private boolean readInProgress;
+	// a message written since the last flush is awaited by the peer
+	private boolean urgent;
+	private Future<?> nextScheduledFlush;
+
+	public ImapFlushConsolidationHandler() {
+		this(DEFAULT_EXPLICIT_FLUSH_AFTER_FLUSHES);
+	}
+
+	public ImapFlushConsolidationHandler(int explicitFlushAfterFlushes) {
+		if (explicitFlushAfterFlushes < 1) {
+			throw new IllegalArgumentException(
+					"explicitFlushAfterFlushes: " + explicitFlushAfterFlushes + " (expected: > 0)");
+		}
+		this.explicitFlushAfterFlushes = explicitFlushAfterFlushes;
+		this.flushTask = () -> {
+			nextScheduledFlush = null;
+			if (flushPendingCount > 0 && !readInProgress) {
+				flushNow(ctx);
+			}
+		};
+	}
+
+	@Override
+	public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+		this.ctx = ctx;
+	}
+
+	@Override
+	public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+		if (msg instanceof ImapResponse) {
+			ImapResponse response = (ImapResponse) msg;
+			if (response.tagged() || response instanceof ImapResponse.ByeResponse) {
+				urgent = true;
+			}
+		} else if (!(msg instanceof ImapCommand)) {
+			// continuation requests and raw buffers are not held back
+			urgent = true;
+		}
+		ctx.write(msg, promise);
+	}
+
+	@Override
+	public void flush(ChannelHandlerContext ctx) throws Exception {
+		if (readInProgress) {
+			if (++flushPendingCount == explicitFlushAfterFlushes) {
+				flushNow(ctx);
+			}
+		} else if (urgent || ++flushPendingCount == explicitFlushAfterFlushes) {
+			flushNow(ctx);
+		} else if (nextScheduledFlush == null) {
+			nextScheduledFlush = ctx.channel().eventLoop().submit(flushTask);
+		}
+	}
+
+	@Override
+	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+		readInProgress = true;
+		ctx.fireChannelRead(msg);
+	}
+
+	@Override
+	public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+		resetReadAndFlushIfNeeded(ctx);
+		ctx.fireChannelReadComplete();
+	}
+
+	@Override
+	public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+		resetReadAndFlushIfNeeded(ctx);
+		ctx.fireExceptionCaught(cause);
+	}
+
+	@Override
+	public void disconnect(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+		resetReadAndFlushIfNeeded(ctx);
+		ctx.disconnect(promise);
+	}
+
+	@Override
+	public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+		resetReadAndFlushIfNeeded(ctx);
+		ctx.close(promise);
+	}
+
+	@Override
+	public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+		if (!ctx.channel().isWritable()) {
+			// let what is held back drain
+			flushIfNeeded(ctx);
+		}
+		ctx.fireChannelWritabilityChanged();
+	}
+
+	@Override
+	public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+		flushIfNeeded(ctx);
+	}
+
+	private void resetReadAndFlushIfNeeded(ChannelHandlerContext ctx) {
+		readInProgress = false;
+		flushIfNeeded(ctx);
+	}
+
+	private void flushIfNeeded(ChannelHandlerContext ctx) {
+		if (flushPendingCount > 0) {
+			flushNow(ctx);
+		}
+	}
+
+	private void flushNow(ChannelHandlerContext ctx) {
+		if (nextScheduledFlush != null) {
+			nextScheduledFlush.cancel(false);
+			nextScheduledFlush = null;
+		}
+		flushPendingCount = 0;
+		urgent = false;
+		ctx.flush();
+	}
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2016 Laurent Belmonte <laurent.belmonte@gmail.com>
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.imap;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.AsciiString;
+
+/**
+ * IMAP command, response, response code and data item names from RFC 3501
+ * and RFC 9051, looked up case-insensitively straight from the wire bytes.
+ */
+public enum ImapKeyword {
+
+	// commands
+	CAPABILITY, NOOP, LOGOUT, STARTTLS, AUTHENTICATE, LOGIN, SELECT, EXAMINE, CREATE, DELETE, RENAME, SUBSCRIBE,
+	UNSUBSCRIBE, LIST, LSUB, NAMESPACE, STATUS, APPEND, IDLE, DONE, CHECK, CLOSE, UNSELECT, EXPUNGE, SEARCH, FETCH,
+	STORE, COPY, MOVE, UID, ENABLE, SORT,
+
+	// status responses
+	OK, NO, BAD, PREAUTH, BYE,
+
+	// server responses
+	ENABLED, ESEARCH, FLAGS, EXISTS, RECENT,
+
+	// response codes
+	ALERT, ALREADYEXISTS, APPENDUID, AUTHENTICATIONFAILED, AUTHORIZATIONFAILED, BADCHARSET, CANNOT, CLIENTBUG,
+	CLOSED, CONTACTADMIN, COPYUID, CORRUPTION, EXPIRED, EXPUNGEISSUED, HASCHILDREN, INUSE, LIMIT, NONEXISTENT,
+	NOPERM, OVERQUOTA, PARSE, PERMANENTFLAGS, PRIVACYREQUIRED, READ_ONLY("READ-ONLY"), READ_WRITE("READ-WRITE"),
+	SERVERBUG, TRYCREATE, UIDNEXT, UIDNOTSTICKY, UIDVALIDITY, UNAVAILABLE, UNKNOWN_CTE("UNKNOWN-CTE"), UNSEEN,
+
+	// status and fetch data items
+	MESSAGES, DELETED, SIZE, ENVELOPE, INTERNALDATE, RFC822, RFC822_HEADER("RFC822.HEADER"),
+	RFC822_SIZE("RFC822.SIZE"), RFC822_TEXT("RFC822.TEXT"), BODY, BODYSTRUCTURE, BINARY, BINARY_SIZE("BINARY.SIZE"),
+	MODSEQ, HIGHESTMODSEQ,
+
+	// search results and misc atoms
+	MIN, MAX, ALL, COUNT, SAVE, CHARSET, TAG;
+
+	private static final int TABLE_MASK = 255;
+	private static final ImapKeyword[] TABLE = new ImapKeyword[TABLE_MASK + 1];
+
+	static {
+		for (ImapKeyword keyword : values()) {
+			int i = keyword.hash;
+			while (TABLE[i & TABLE_MASK] != null) {
+				i++;
+			}
+			TABLE[i & TABLE_MASK] = keyword;
+		}
+	}
+
+	private final String text;
+	private final AsciiString ascii;
+	private final int hash;
+
+	private ImapKeyword() {
+		this(null);
+	}
+
+	private ImapKeyword(String text) {
+		this.text = text != null ? text : name();
+		this.ascii = AsciiString.cached(this.text);
+		int h = 0;
+		for (int i = 0; i < ascii.length(); i++) {
+			h = hash(h, ascii.byteAt(i));
+		}
+		this.hash = h;
+	}
+
+	public AsciiString asciiName() {
+		return ascii;
+	}
+
+	@Override
+	public String toString() {
+		return text;
+	}
+
+	/**
+	 * Whether the bytes match this keyword exactly, case included.
+	 */
+	boolean isExactly(ByteBuf buf, int index, int length) {
+		if (length != ascii.length()) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (buf.getByte(index + i) != ascii.byteAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Looks the bytes up without allocating, ignoring case.
+	 * 
+	 * @return the keyword or <code>null</code> if the atom is not a known
+	 *         keyword
+	 */
+	public static ImapKeyword of(ByteBuf buf, int index, int length) {
+		int h = 0;
+		for (int i = 0; i < length; i++) {
+			h = hash(h, buf.getByte(index + i));
+		}
+		for (int i = h;; i++) {
+			ImapKeyword keyword = TABLE[i & TABLE_MASK];
+			if (keyword == null) {
+				return null;
+			} else if (keyword.hash == h && keyword.ascii.length() == length
+					&& equalsIgnoreCase(keyword.ascii, buf, index)) {
+				return keyword;
+			}
+		}
+	}
+
+	public static ImapKeyword of(CharSequence value) {
+		if (value == null) {
+			return null;
+		}
+		int h = 0;
+		for (int i = 0; i < value.length(); i++) {
+			h = hash(h, (byte) value.charAt(i));
+		}
+		for (int i = h;; i++) {
+			ImapKeyword keyword = TABLE[i & TABLE_MASK];
+			if (keyword == null) {
+				return null;
+			} else if (keyword.hash == h && keyword.ascii.contentEqualsIgnoreCase(value)) {
+				return keyword;
+			}
+		}
+	}
+
+	private static int hash(int h, byte b) {
+		return h * 31 + (b | 0x20);
+	}
+
+	private static boolean equalsIgnoreCase(AsciiString ascii, ByteBuf buf, int index) {
+		for (int i = 0; i < ascii.length(); i++) {
+			byte b = buf.getByte(index + i);
+			if (b >= 'a' && b <= 'z') {
+				b -= 32;
+			}
+			if (b != ascii.byteAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
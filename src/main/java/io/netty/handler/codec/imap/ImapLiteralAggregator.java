@@ -0,0 +1,264 @@
+/*
+ * Copyright 2016 Laurent Belmonte <laurent.belmonte@gmail.com>
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.imap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToMessageDecoder;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.util.ReferenceCountUtil;
+
+/**
+ * Reassembles literals into a single {@link LiteralParameter} backed by a
+ * {@link CompositeByteBuf}, so that handlers behind it only see complete
+ * {@link ImapCommand}s and {@link ImapResponse}s. Both the
+ * {@link LiteralParameter}/{@link ChunkParameter} sequences of a plain
+ * decoder and the {@link ImapLiteralContent} messages of a streaming decoder
+ * are merged, without copying the literal data.
+ *
+ * When the literals of a message add up to more than
+ * {@code maxContentLength} bytes the message is either dropped with a
+ * {@link TooLongFrameException} fired down the pipeline, or passed through
+ * unchanged.
+ */
+public class ImapLiteralAggregator extends MessageToMessageDecoder<Object> {
+
+	private static final int MAX_COMPOSITEBUFFER_COMPONENTS = 1024;
+
+	private final int maxContentLength;
+	private final boolean passOversized;
+
+	private Object head;
+	private List<CommandParameter> parameters;
+	private LiteralParameter literal;
+	private CompositeByteBuf content;
+	private long contentLength;
+	private boolean passing;
+	private boolean discarding;
+
+	public ImapLiteralAggregator(int maxContentLength) {
+		this(maxContentLength, false);
+	}
+
+	public ImapLiteralAggregator(int maxContentLength, boolean passOversized) {
+		if (maxContentLength < 0) {
+			throw new IllegalArgumentException("maxContentLength: " + maxContentLength + " (expected: >= 0)");
+		}
+		this.maxContentLength = maxContentLength;
+		this.passOversized = passOversized;
+	}
+
+	@Override
+	public boolean acceptInboundMessage(Object msg) throws Exception {
+		return msg instanceof ImapCommand || msg instanceof ImapResponse || msg instanceof ImapLiteralContent;
+	}
+
+	@Override
+	protected void decode(ChannelHandlerContext ctx, Object msg, List<Object> out) throws Exception {
+		if (msg instanceof ImapLiteralContent) {
+			decodeContent(ctx, (ImapLiteralContent) msg, out);
+			return;
+		}
+
+		List<CommandParameter> params = parametersOf(msg);
+		if (params == null || params.isEmpty()) {
+			out.add(ReferenceCountUtil.retain(msg));
+			return;
+		}
+
+		CommandParameter last = params.get(params.size() - 1);
+		if (last.isPartial() && last instanceof LiteralParameter) {
+			// pooled messages are recycled once released, keep the head alive
+			head = ReferenceCountUtil.retain(msg);
+			parameters = new ArrayList<>(params.size());
+			for (CommandParameter p : params.subList(0, params.size() - 1)) {
+				parameters.add(ReferenceCountUtil.retain(p));
+			}
+			contentLength = 0;
+			startLiteral(ctx, (LiteralParameter) last, out);
+		} else {
+			aggregate(ctx, msg, params, out);
+		}
+	}
+
+	private void aggregate(ChannelHandlerContext ctx, Object msg, List<CommandParameter> params, List<Object> out) {
+		long length = 0;
+		boolean chunked = false;
+		for (CommandParameter p : params) {
+			if (p instanceof LiteralParameter) {
+				length += ((LiteralParameter) p).getLength();
+			} else if (p instanceof ChunkParameter) {
+				chunked = true;
+			}
+		}
+
+		if (length > maxContentLength) {
+			if (passOversized) {
+				out.add(ReferenceCountUtil.retain(msg));
+			} else {
+				ctx.fireExceptionCaught(tooLong(length));
+			}
+			return;
+		}
+
+		if (!chunked) {
+			out.add(ReferenceCountUtil.retain(msg));
+			return;
+		}
+
+		List<CommandParameter> merged = new ArrayList<>(params.size());
+		for (CommandParameter p : params) {
+			if (p instanceof LiteralParameter && p.isPartial()) {
+				literal = (LiteralParameter) p;
+				content = ctx.alloc().compositeBuffer(MAX_COMPOSITEBUFFER_COMPONENTS);
+				content.addComponent(true, literal.content().retain());
+			} else if (p instanceof ChunkParameter && content != null) {
+				ChunkParameter chunk = (ChunkParameter) p;
+				content.addComponent(true, chunk.content().retain());
+				if (chunk.isLast()) {
+					merged.add(new LiteralParameter(content, literal.getLength(), literal.isPlus()));
+					literal = null;
+					content = null;
+				}
+			} else {
+				merged.add(ReferenceCountUtil.retain(p));
+			}
+		}
+		out.add(withParameters(msg, merged));
+	}
+
+	private void decodeContent(ChannelHandlerContext ctx, ImapLiteralContent msg, List<Object> out) {
+		boolean end = msg instanceof LastImapLiteralContent && !((LastImapLiteralContent) msg).partial();
+		if (discarding) {
+			discarding = !end;
+			return;
+		}
+		if (passing || head == null) {
+			passing = passing && !end;
+			out.add(msg.retain());
+			return;
+		}
+
+		content.addComponent(true, msg.content().retain());
+		if (!(msg instanceof LastImapLiteralContent)) {
+			return;
+		}
+
+		parameters.add(new LiteralParameter(content, literal.getLength(), literal.isPlus()));
+		content = null;
+		literal = null;
+		// the trailing parameters are released with msg
+		List<CommandParameter> trailing = ((LastImapLiteralContent) msg).trailingParameters();
+		int kept = end ? trailing.size() : trailing.size() - 1;
+		for (int i = 0; i < kept; i++) {
+			parameters.add(ReferenceCountUtil.retain(trailing.get(i)));
+		}
+		if (end) {
+			out.add(withParameters(head, parameters));
+			releaseHead();
+			parameters = null;
+		} else {
+			// the header of a streamed literal holds no buffer
+			startLiteral(ctx, (LiteralParameter) trailing.get(kept), out);
+		}
+	}
+
+	private void startLiteral(ChannelHandlerContext ctx, LiteralParameter header, List<Object> out) {
+		contentLength += header.getLength();
+		if (contentLength <= maxContentLength) {
+			literal = header;
+			content = ctx.alloc().compositeBuffer(MAX_COMPOSITEBUFFER_COMPONENTS);
+			return;
+		}
+
+		if (passOversized) {
+			parameters.add(header);
+			out.add(withParameters(head, parameters));
+			releaseHead();
+			parameters = null;
+			passing = true;
+		} else {
+			releaseParameters();
+			discarding = true;
+			ctx.fireExceptionCaught(tooLong(contentLength));
+		}
+	}
+
+	private TooLongFrameException tooLong(long length) {
+		return new TooLongFrameException(
+				"literals of " + length + " bytes are larger than " + maxContentLength + " bytes.");
+	}
+
+	private static List<CommandParameter> parametersOf(Object msg) {
+		if (msg instanceof ImapCommand) {
+			return ((ImapCommand) msg).getParameters();
+		} else if (msg instanceof ImapResponse.MessageStatusResponse || msg instanceof ImapResponse.ServerResponse) {
+			return ((ImapResponse) msg).getParameters();
+		}
+		return null;
+	}
+
+	private static Object withParameters(Object msg, List<CommandParameter> parameters) {
+		if (msg instanceof ImapCommand) {
+			ImapCommand cmd = (ImapCommand) msg;
+			return new ImapCommand(cmd.getTag(), cmd.getCommand(), parameters);
+		} else if (msg instanceof ImapResponse.MessageStatusResponse) {
+			ImapResponse.MessageStatusResponse response = (ImapResponse.MessageStatusResponse) msg;
+			return new ImapResponse.MessageStatusResponse(response.number, response.command, parameters);
+		} else {
+			ImapResponse.ServerResponse response = (ImapResponse.ServerResponse) msg;
+			return new ImapResponse.ServerResponse(response.command, parameters);
+		}
+	}
+
+	private void releaseHead() {
+		ReferenceCountUtil.release(head);
+		head = null;
+	}
+
+	private void releaseParameters() {
+		CommandParameter.release(parameters);
+		if (content != null) {
+			content.release();
+		}
+		releaseHead();
+		parameters = null;
+		literal = null;
+		content = null;
+	}
+
+	@Override
+	public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+		try {
+			super.channelInactive(ctx);
+		} finally {
+			releaseParameters();
+		}
+	}
+
+	@Override
+	public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+		try {
+			super.handlerRemoved(ctx);
+		} finally {
+			releaseParameters();
+		}
+	}
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2016 Laurent Belmonte <laurent.belmonte@gmail.com>
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.imap;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufHolder;
+
+/**
+ * A chunk of literal data following an {@link ImapCommand} or an
+ * {@link ImapResponse} whose last parameter is a partial
+ * {@link LiteralParameter}, when literals are streamed.
+ *
+ * @see ImapDecoderConfig#streamLiterals(boolean)
+ */
+public interface ImapLiteralContent extends ByteBufHolder {
+
+	@Override
+	ImapLiteralContent copy();
+
+	@Override
+	ImapLiteralContent duplicate();
+
+	@Override
+	ImapLiteralContent retainedDuplicate();
+
+	@Override
+	ImapLiteralContent replace(ByteBuf content);
+
+	@Override
+	ImapLiteralContent retain();
+
+	@Override
+	ImapLiteralContent retain(int increment);
+
+	@Override
+	ImapLiteralContent touch();
+
+	@Override
+	ImapLiteralContent touch(Object hint);
+}
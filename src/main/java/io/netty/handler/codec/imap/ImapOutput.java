@@ -0,0 +1,129 @@
+/*
+ * Copyright 2016 Laurent Belmonte <laurent.belmonte@gmail.com>
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.imap;
+
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.FileRegion;
+
+/**
+ * Gathers the encoded form of a message as a sequence of buffers: framing
+ * bytes are written to a small buffer while literal payloads are passed
+ * through as retained duplicates instead of being copied.
+ */
+public class ImapOutput {
+
+	/**
+	 * Payloads below this size are cheaper to copy than to gather.
+	 */
+	private static final int COPY_THRESHOLD = 256;
+
+	/**
+	 * Stands for the literal preceding the trailing parameters of a
+	 * {@link LastImapLiteralContent}.
+	 */
+	private static final CommandParameter LITERAL = new ChunkParameter(Unpooled.EMPTY_BUFFER, true);
+
+	private final ByteBufAllocator alloc;
+	private final List<Object> out;
+	private ByteBuf buffer;
+	private boolean empty = true;
+
+	public ImapOutput(ByteBufAllocator alloc, List<Object> out) {
+		this.alloc = alloc;
+		this.out = out;
+	}
+
+	/**
+	 * The buffer to write framing bytes to. It is only valid until the next
+	 * call to {@link #add(ByteBuf)}.
+	 */
+	public ByteBuf buffer() {
+		if (buffer == null) {
+			buffer = alloc.buffer();
+		}
+		return buffer;
+	}
+
+	/**
+	 * Adds a payload without transferring ownership: the payload is retained
+	 * and its reader index is left untouched.
+	 */
+	public void add(ByteBuf content) {
+		int length = content.readableBytes();
+		if (length == 0) {
+			return;
+		}
+		if (length < COPY_THRESHOLD) {
+			buffer().writeBytes(content, content.readerIndex(), length);
+			return;
+		}
+		flushBuffer();
+		out.add(content.retainedDuplicate());
+		empty = false;
+	}
+
+	/**
+	 * Adds a file region, transferring ownership of it to the output.
+	 */
+	public void add(FileRegion region) {
+		flushBuffer();
+		out.add(region);
+		empty = false;
+	}
+
+	/**
+	 * Writes a streamed literal chunk and, for the last one, the parameters
+	 * following it and the line end unless another literal starts.
+	 */
+	public void write(ImapLiteralContent content) {
+		add(content.content());
+		if (content instanceof LastImapLiteralContent) {
+			LastImapLiteralContent last = (LastImapLiteralContent) content;
+			CommandParameter.write(this, LITERAL, last.trailingParameters());
+			if (!last.partial()) {
+				endLine();
+			}
+		}
+	}
+
+	public void endLine() {
+		buffer().writeByte('\r').writeByte('\n');
+	}
+
+	public void finish() {
+		flushBuffer();
+		if (empty) {
+			out.add(Unpooled.EMPTY_BUFFER);
+		}
+	}
+
+	private void flushBuffer() {
+		if (buffer != null) {
+			if (buffer.isReadable()) {
+				out.add(buffer);
+				empty = false;
+			} else {
+				buffer.release();
+			}
+			buffer = null;
+		}
+	}
+
+}
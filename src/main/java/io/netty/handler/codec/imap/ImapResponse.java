@@ -15,13 +15,54 @@
  */
 package io.netty.handler.codec.imap;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufUtil;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.util.AbstractReferenceCounted;
+import io.netty.util.Recycler;
+import io.netty.util.ReferenceCounted;
+
+/**
+ * A response line. Releasing the last reference to it releases the buffers
+ * of its literal parameters.
+ */
+public interface ImapResponse extends ReferenceCounted {
+
+	public abstract class AbstractImapResponse extends AbstractReferenceCounted implements ImapResponse {
+
+		@Override
+		public ImapResponse retain() {
+			super.retain();
+			return this;
+		}
+
+		@Override
+		public ImapResponse retain(int increment) {
+			super.retain(increment);
+			return this;
+		}
 
-public interface ImapResponse {
+		@Override
+		public ImapResponse touch() {
+			super.touch();
+			return this;
+		}
+
+		@Override
+		public ImapResponse touch(Object hint) {
+			CommandParameter.touch(getParameters(), hint);
+			return this;
+		}
+
+		@Override
+		protected void deallocate() {
+			CommandParameter.release(getParameters());
+		}
+	}
 
 	public class ResponseCode {
 		public ResponseCode(String statusCode, List<CommandParameter> statusCodeParams) {
@@ -81,35 +122,83 @@ public interface ImapResponse {
 		public ResponseCode getCode();
 
 		public static StatusResponse create(String tag, String statusCode, List<CommandParameter> statusCodeParams,
-				String statusResponse, String statusReponseMessage) {
+				String statusResponse, CharSequence statusReponseMessage) {
+			ImapKeyword keyword = ImapKeyword.of(statusResponse);
 			ResponseCode code = statusCode != null ? new ResponseCode(statusCode, statusCodeParams) : null;
-			if (statusResponse.equals("OK")) {
-				return new Ok(tag, code, statusReponseMessage);
-			} else if (statusResponse.equals("BYE")) {
-				return new ByeResponse(code, statusReponseMessage);
-			} else if (statusResponse.equals("BAD")) {
-				return new Bad(tag, code, statusReponseMessage);
-			} else if (statusResponse.equals("NO")) {
-				return new No(tag, code, statusReponseMessage);
-			} else if (statusResponse.equals("PREAUTH")) {
-				return new PreAuthResponse(code, statusReponseMessage);
-			} else {
-				// FIXME
-				return null;
+			if (keyword != null) {
+				switch (keyword) {
+				case OK:
+					return new Ok(tag, code, statusReponseMessage);
+				case BYE:
+					return new ByeResponse(code, statusReponseMessage);
+				case BAD:
+					return new Bad(tag, code, statusReponseMessage);
+				case NO:
+					return new No(tag, code, statusReponseMessage);
+				case PREAUTH:
+					return new PreAuthResponse(code, statusReponseMessage);
+				default:
+				}
 			}
+			CommandParameter.release(statusCodeParams);
+			throw new CorruptedFrameException("not a status response: " + statusResponse);
 		}
 	}
 
-	public class ServerResponse implements ImapResponse {
+	public class ServerResponse extends AbstractImapResponse {
+
+		private static final Recycler<ServerResponse> RECYCLER = new Recycler<ServerResponse>() {
+			@Override
+			protected ServerResponse newObject(Handle<ServerResponse> handle) {
+				return new ServerResponse(handle);
+			}
+		};
 
 		public ServerResponse(String command, List<CommandParameter> parameters) {
 			this.command = command;
 			this.parameters = parameters;
+			this.handle = null;
 		}
 
-		public final String command;
+		private ServerResponse(Recycler.Handle<ServerResponse> handle) {
+			this.parameters = new ArrayList<>();
+			this.handle = handle;
+		}
+
+		/**
+		 * A pooled response going back to the pool on its last release, its
+		 * parameters are added to {@link #getParameters()}.
+		 */
+		static ServerResponse newInstance(String command) {
+			ServerResponse response = RECYCLER.get();
+			response.setRefCnt(1);
+			response.command = command;
+			return response;
+		}
+
+		private final Recycler.Handle<ServerResponse> handle;
+		public String command;
 		public final List<CommandParameter> parameters;
 
+		@Override
+		protected void deallocate() {
+			super.deallocate();
+			if (handle != null) {
+				parameters.clear();
+				command = null;
+				handle.recycle(this);
+			}
+		}
+
+		public ImapKeyword getKeyword() {
+			return ImapKeyword.of(command);
+		}
+
+		@Override
+		public ServerResponse retainedDuplicate() {
+			return new ServerResponse(command, CommandParameter.retainedDuplicate(parameters));
+		}
+
 		@Override
 		public boolean tagged() {
 			return false;
@@ -159,6 +248,15 @@ public interface ImapResponse {
 			CommandParameter.write(buf, parameters);
 		}
 
+		@Override
+		public void write(ImapOutput out) {
+			ByteBuf buf = out.buffer();
+			buf.writeByte('*');
+			buf.writeByte(' ');
+			ByteBufUtil.writeAscii(buf, command);
+			CommandParameter.write(out, parameters);
+		}
+
 		@Override
 		public String toString() {
 			return "ServerResponse [command=" + command + ", parameters=" + parameters + "]";
@@ -166,16 +264,18 @@ public interface ImapResponse {
 
 	}
 
-	public static class GenericReponse implements StatusResponse {
+	public static class GenericReponse extends AbstractImapResponse implements StatusResponse {
 		public final String tag;
 		public final ResponseCode code;
 		private final String reponse;
+		private final CharSequence message;
 		public final List<CommandParameter> parameters;
 
-		public GenericReponse(String tag, ResponseCode code, String response, String message) {
+		public GenericReponse(String tag, ResponseCode code, String response, CharSequence message) {
 			this.tag = tag;
 			this.code = code;
 			this.reponse = response;
+			this.message = message;
 			this.parameters = Arrays.asList(new HumanReadableParameter(message));
 		}
 
@@ -194,6 +294,40 @@ public interface ImapResponse {
 			return code;
 		}
 
+		@Override
+		public GenericReponse retainedDuplicate() {
+			return new GenericReponse(tag, retainedCode(), reponse, message);
+		}
+
+		/**
+		 * A copy of the response code retaining its parameters, for the
+		 * {@link #retainedDuplicate()} of subclasses.
+		 */
+		protected ResponseCode retainedCode() {
+			return code == null ? null
+					: new ResponseCode(code.name, CommandParameter.retainedDuplicate(code.parameters));
+		}
+
+		protected CharSequence message() {
+			return message;
+		}
+
+		@Override
+		public ImapResponse touch(Object hint) {
+			if (code != null) {
+				CommandParameter.touch(code.parameters, hint);
+			}
+			return super.touch(hint);
+		}
+
+		@Override
+		protected void deallocate() {
+			if (code != null) {
+				CommandParameter.release(code.parameters);
+			}
+			super.deallocate();
+		}
+
 		@Override
 		public int hashCode() {
 			final int prime = 31;
@@ -262,35 +396,90 @@ public interface ImapResponse {
 
 	public static class Ok extends GenericReponse {
 
-		public Ok(String tag, ResponseCode code, String message) {
+		public Ok(String tag, ResponseCode code, CharSequence message) {
 			super(tag, code, "OK", message);
 		}
 
+		@Override
+		public Ok retainedDuplicate() {
+			return new Ok(tag, retainedCode(), message());
+		}
+
 	}
 
 	public static class No extends GenericReponse {
 
-		public No(String tag, ResponseCode code, String message) {
+		public No(String tag, ResponseCode code, CharSequence message) {
 			super(tag, code, "NO", message);
 		}
 
+		@Override
+		public No retainedDuplicate() {
+			return new No(tag, retainedCode(), message());
+		}
+
 	}
 
-	public static class MessageStatusResponse implements ImapResponse {
+	public static class MessageStatusResponse extends AbstractImapResponse {
 
 		@Override
 		public String toString() {
 			return "MessageStatusResponse [command=" + command + ", number=" + number + "]";
 		}
 
-		public final String command;
-		public final int number;
-		private List<CommandParameter> parameters;
+		private static final Recycler<MessageStatusResponse> RECYCLER = new Recycler<MessageStatusResponse>() {
+			@Override
+			protected MessageStatusResponse newObject(Handle<MessageStatusResponse> handle) {
+				return new MessageStatusResponse(handle);
+			}
+		};
+
+		private final Recycler.Handle<MessageStatusResponse> handle;
+		public String command;
+		public int number;
+		private final List<CommandParameter> parameters;
 
 		public MessageStatusResponse(int number, String command, List<CommandParameter> parameters) {
 			this.number = number;
 			this.command = command;
 			this.parameters = parameters;
+			this.handle = null;
+		}
+
+		private MessageStatusResponse(Recycler.Handle<MessageStatusResponse> handle) {
+			this.parameters = new ArrayList<>();
+			this.handle = handle;
+		}
+
+		/**
+		 * A pooled response going back to the pool on its last release, its
+		 * parameters are added to {@link #getParameters()}.
+		 */
+		static MessageStatusResponse newInstance(int number, String command) {
+			MessageStatusResponse response = RECYCLER.get();
+			response.setRefCnt(1);
+			response.number = number;
+			response.command = command;
+			return response;
+		}
+
+		@Override
+		protected void deallocate() {
+			super.deallocate();
+			if (handle != null) {
+				parameters.clear();
+				command = null;
+				handle.recycle(this);
+			}
+		}
+
+		public ImapKeyword getKeyword() {
+			return ImapKeyword.of(command);
+		}
+
+		@Override
+		public MessageStatusResponse retainedDuplicate() {
+			return new MessageStatusResponse(number, command, CommandParameter.retainedDuplicate(parameters));
 		}
 
 		@Override
@@ -345,28 +534,56 @@ public interface ImapResponse {
 			}
 		}
 
+		@Override
+		public void write(ImapOutput out) {
+			ByteBuf buf = out.buffer();
+			buf.writeByte('*');
+			buf.writeByte(' ');
+			ByteBufUtil.writeAscii(buf, Integer.toString(number));
+
+			buf.writeByte(' ');
+			ByteBufUtil.writeAscii(buf, command);
+
+			CommandParameter.write(out, parameters);
+		}
+
 	}
 
 	public static class ByeResponse extends GenericReponse {
 
-		public ByeResponse(ResponseCode code, String message) {
+		public ByeResponse(ResponseCode code, CharSequence message) {
 			super(null, code, "BYE", message);
 		}
+
+		@Override
+		public ByeResponse retainedDuplicate() {
+			return new ByeResponse(retainedCode(), message());
+		}
 	}
 
 	public static class Bad extends GenericReponse {
 
-		public Bad(String tag, ResponseCode code, String message) {
+		public Bad(String tag, ResponseCode code, CharSequence message) {
 			super(tag, code, "BAD", message);
 		}
+
+		@Override
+		public Bad retainedDuplicate() {
+			return new Bad(tag, retainedCode(), message());
+		}
 	}
 
 	public static class PreAuthResponse extends GenericReponse {
 
-		public PreAuthResponse(ResponseCode code, String message) {
+		public PreAuthResponse(ResponseCode code, CharSequence message) {
 			super(null, code, "PREAUTH", message);
 		}
 
+		@Override
+		public PreAuthResponse retainedDuplicate() {
+			return new PreAuthResponse(retainedCode(), message());
+		}
+
 	}
 
 	public boolean tagged();
@@ -374,4 +591,35 @@ public interface ImapResponse {
 	public List<CommandParameter> getParameters();
 
 	public void write(ByteBuf buf);
+
+	/**
+	 * A response sharing the literal content of this one, with its own reader
+	 * indexes and reference count.
+	 */
+	public ImapResponse retainedDuplicate();
+
+	@Override
+	public ImapResponse retain();
+
+	@Override
+	public ImapResponse retain(int increment);
+
+	@Override
+	public ImapResponse touch();
+
+	@Override
+	public ImapResponse touch(Object hint);
+
+	public default void write(ImapOutput out) {
+		write(out.buffer());
+	}
+
+	/**
+	 * Whether the message ends with a literal whose content follows in
+	 * separate messages.
+	 */
+	public default boolean partial() {
+		List<CommandParameter> parameters = getParameters();
+		return parameters != null && !parameters.isEmpty() && parameters.get(parameters.size() - 1).isPartial();
+	}
 }
@@ -9,13 +9,28 @@ public class ImapResponseBuilder {
 	private Integer messageStatusNumer;
 	private String messageStatusCommand;
 	private String serverResponseCommand;
-	private List<CommandParameter> parameters = new ArrayList<>(10);
+	private List<CommandParameter> parameters;
 	private List<CommandParameter> statusCodeParams;
 	private String statusCode;
 	private String statusResponse;
-	private String statusReponseMessage;
+	private CharSequence statusReponseMessage;
 	private String statusResponseCommand;
 
+	private final boolean pooled;
+
+	public ImapResponseBuilder() {
+		this(false);
+	}
+
+	/**
+	 * @param pooled
+	 *            whether built responses come from a pool, see
+	 *            {@link ImapDecoderConfig#pooledMessages(boolean)}
+	 */
+	public ImapResponseBuilder(boolean pooled) {
+		this.pooled = pooled;
+	}
+
 	public void untagged() {
 		this.tag = null;
 	}
@@ -40,7 +55,7 @@ public class ImapResponseBuilder {
 		this.statusResponse = value;
 	}
 
-	public void statusReponseMessage(String message) {
+	public void statusReponseMessage(CharSequence message) {
 		this.statusReponseMessage = message;
 	}
 
@@ -48,6 +63,10 @@ public class ImapResponseBuilder {
 		messageStatusNumer = parseInt;
 	}
 
+	int messageStatusNumber() {
+		return messageStatusNumer;
+	}
+
 	public void messageStatusCommand(String value) {
 		this.messageStatusCommand = value;
 	}
@@ -57,20 +76,80 @@ public class ImapResponseBuilder {
 	}
 
 	public void addReponseCommandParam(CommandParameter param) {
+		if (parameters == null) {
+			parameters = new ArrayList<>();
+		}
 		parameters.add(param);
 	}
 
 	public ImapResponse build() {
 		if (messageStatusNumer != null) {
-			return new ImapResponse.MessageStatusResponse(messageStatusNumer, messageStatusCommand, parameters);
+			if (pooled) {
+				ImapResponse.MessageStatusResponse response = ImapResponse.MessageStatusResponse
+						.newInstance(messageStatusNumer, messageStatusCommand);
+				addParameters(response.getParameters());
+				return response;
+			}
+			return new ImapResponse.MessageStatusResponse(messageStatusNumer, messageStatusCommand, takeParameters());
 		} else if (serverResponseCommand != null) {
-			return new ImapResponse.ServerResponse(serverResponseCommand, parameters);
+			if (pooled) {
+				ImapResponse.ServerResponse response = ImapResponse.ServerResponse.newInstance(serverResponseCommand);
+				addParameters(response.getParameters());
+				return response;
+			}
+			return new ImapResponse.ServerResponse(serverResponseCommand, takeParameters());
 		} else {
-			return ImapResponse.StatusResponse.create(tag, statusCode, statusCodeParams, statusResponse,
+			List<CommandParameter> codeParams = statusCodeParams;
+			statusCodeParams = null;
+			return ImapResponse.StatusResponse.create(tag, statusCode, codeParams, statusResponse,
 					statusReponseMessage);
 		}
 	}
 
+	private void addParameters(List<CommandParameter> to) {
+		if (parameters != null) {
+			to.addAll(parameters);
+			parameters.clear();
+		}
+	}
+
+	private List<CommandParameter> takeParameters() {
+		List<CommandParameter> ret = parameters != null ? parameters : new ArrayList<>(0);
+		parameters = null;
+		return ret;
+	}
+
+	/**
+	 * Readies the builder for the next response. The parameter list is only
+	 * kept when pooled, otherwise it was handed over to the last response.
+	 */
+	public void reset() {
+		tag = null;
+		messageStatusNumer = null;
+		messageStatusCommand = null;
+		serverResponseCommand = null;
+		if (pooled && parameters != null) {
+			parameters.clear();
+		} else {
+			parameters = null;
+		}
+		statusCodeParams = null;
+		statusCode = null;
+		statusResponse = null;
+		statusReponseMessage = null;
+		statusResponseCommand = null;
+	}
+
+	/**
+	 * Releases the parameters of a response dropped before it was built, then
+	 * resets the builder.
+	 */
+	public void release() {
+		CommandParameter.release(parameters);
+		CommandParameter.release(statusCodeParams);
+		reset();
+	}
+
 	public boolean tagged() {
 		return tag != null;
 	}
@@ -6,26 +6,53 @@ import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.util.AsciiString;
 
 public class ImapResponseDecoder extends ByteToMessageDecoder {
 
 	private enum State {
-		READ_TAG, READ_MAYBE_STATUS_CODE, READ_STATUS_CODE, READ_COMMAND, READ_PARAMTERS, READ_WOOT, READ_STATUS_CODE_PARAMETER, READ_MESSAGE_STATUS, READ_STATUS_REPONSE, READ_STATUS_PARAMETERS, READ_SERVER_RESPONSE, READ_END, READ_MESSAGE_STATUS_PARAMETERS
+		READ_TAG, READ_MAYBE_STATUS_CODE, READ_STATUS_CODE, READ_COMMAND, READ_PARAMTERS, READ_WOOT, READ_STATUS_CODE_PARAMETER, READ_MESSAGE_STATUS, READ_STATUS_REPONSE, READ_STATUS_PARAMETERS, READ_SERVER_RESPONSE, READ_END, READ_MESSAGE_STATUS_PARAMETERS, READ_FETCH, READ_SEARCH
 	}
 
 	private State currentState;
-	private AtomDecoder atomDecoder = new AtomDecoder();
-	private ImapResponseBuilder builder;
-	private ParameterDecoder paramDecoder = new ParameterDecoder(false);
-	private ParameterDecoder paramStatusCodeDecoder = new ParameterDecoder(true);
-	private LineDecoder lineDecoder = new LineDecoder();
+	private final AtomDecoder atomDecoder = new AtomDecoder();
+	private final ImapDecoderConfig config;
+	private final ImapResponseBuilder builder;
+	private final ParameterDecoder paramDecoder;
+	// only status lines with a response code need it
+	private ParameterDecoder paramStatusCodeDecoder;
+	// only with typed FETCH responses
+	private FetchDecoder fetchDecoder;
+	// only with typed SEARCH responses
+	private SearchDecoder searchDecoder;
+	private final LineDecoder lineDecoder = new LineDecoder();
+	private LiteralStream literalStream;
 
 	public ImapResponseDecoder() {
+		this(new ImapDecoderConfig());
+	}
+
+	public ImapResponseDecoder(ImapDecoderConfig config) {
+		this.config = config;
+		builder = new ImapResponseBuilder(config.isPooledMessages());
+		paramDecoder = new ParameterDecoder(false, config);
+		if (config.isStreamLiterals()) {
+			literalStream = new LiteralStream();
+		}
 		resetNow();
 	}
 
 	@Override
 	protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+		try {
+			decodeMessage(ctx, in, out);
+		} catch (Exception e) {
+			discard();
+			throw e;
+		}
+	}
+
+	private void decodeMessage(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
 		switch (currentState) {
 		case READ_TAG: {
 			String atom = atomDecoder.parse(in);
@@ -53,16 +80,25 @@ public class ImapResponseDecoder extends ByteToMessageDecoder {
 			if (atom == null) {
 				return;
 			}
+			boolean isNumber = atomDecoder.isNumber();
+			int number = atomDecoder.number();
+			ImapKeyword keyword = atomDecoder.keyword();
 			atomDecoder.reset();
-			if (isNumber(atom)) {
+			if (isNumber) {
 				checkAndSkipSpace(in);
 				currentState = State.READ_MESSAGE_STATUS;
-				builder.messageStatusNumber(Integer.parseInt(atom));
+				builder.messageStatusNumber(number);
 				break;
-			} else if (isStatusResponse(atom)) {
+			} else if (isStatusResponse(keyword)) {
 				checkAndSkipSpace(in);
 				currentState = State.READ_MAYBE_STATUS_CODE;
 				builder.statusResponse(atom);
+			} else if (config.isTypedSearch() && isSearchResponse(keyword)) {
+				if (searchDecoder == null) {
+					searchDecoder = new SearchDecoder(config);
+				}
+				searchDecoder.start(keyword);
+				currentState = State.READ_SEARCH;
 			} else {
 				currentState = State.READ_SERVER_RESPONSE;
 				builder.serverResponseCommand(atom);
@@ -73,6 +109,9 @@ public class ImapResponseDecoder extends ByteToMessageDecoder {
 
 		switch (currentState) {
 		case READ_MAYBE_STATUS_CODE: {
+			if (!in.isReadable()) {
+				return;
+			}
 			byte firstChar = in.getByte(in.readerIndex());
 			if (firstChar != '[') {
 				currentState = State.READ_STATUS_REPONSE;
@@ -92,6 +131,9 @@ public class ImapResponseDecoder extends ByteToMessageDecoder {
 			}
 			atomDecoder.reset();
 			builder.statusCode(atom);
+			if (paramStatusCodeDecoder == null) {
+				paramStatusCodeDecoder = new ParameterDecoder(true, config);
+			}
 			currentState = State.READ_STATUS_CODE_PARAMETER;
 
 		}
@@ -102,17 +144,23 @@ public class ImapResponseDecoder extends ByteToMessageDecoder {
 			}
 
 			if (paramStatusCodeDecoder.getState() == ParameterDecoder.State.Ended) {
-				in.skipBytes(1);
-				currentState = State.READ_STATUS_REPONSE;
+				currentState = State.READ_END;
 			} else {
 				return;
 			}
 		}
+		case READ_END: {
+			if (!in.isReadable()) {
+				return;
+			}
+			in.skipBytes(1);
+			currentState = State.READ_STATUS_REPONSE;
+		}
 		default:
 		}
 		switch (currentState) {
 		case READ_STATUS_REPONSE: {
-			String message = readMessage(in);
+			AsciiString message = readMessage(in);
 			if (message == null) {
 				return;
 			}
@@ -125,14 +173,16 @@ public class ImapResponseDecoder extends ByteToMessageDecoder {
 		case READ_SERVER_RESPONSE: {
 			CommandParameter param = null;
 			while ((param = paramDecoder.next(ctx, in)) != null) {
-				builder.addReponseCommandParam(param);
+				addReponseCommandParam(param, out);
 			}
 
 			if (paramDecoder.getState() == ParameterDecoder.State.Ended) {
-				out.add(builder.build());
+				if (literalStream == null || !literalStream.end(out)) {
+					out.add(builder.build());
+				}
 				resetNow();
-				break;
 			}
+			break;
 		}
 
 		case READ_MESSAGE_STATUS: {
@@ -140,28 +190,72 @@ public class ImapResponseDecoder extends ByteToMessageDecoder {
 			if (atom == null) {
 				return;
 			}
+			ImapKeyword keyword = atomDecoder.keyword();
 			atomDecoder.reset();
+			if (keyword == ImapKeyword.FETCH && config.isTypedFetch()) {
+				if (fetchDecoder == null) {
+					fetchDecoder = new FetchDecoder(config);
+				}
+				fetchDecoder.start(builder.messageStatusNumber());
+				currentState = State.READ_FETCH;
+				decodeFetch(ctx, in, out);
+				break;
+			}
 			currentState = State.READ_MESSAGE_STATUS_PARAMETERS;
 			builder.messageStatusCommand(atom);
 		}
 		case READ_MESSAGE_STATUS_PARAMETERS: {
 			CommandParameter param = null;
 			while ((param = paramDecoder.next(ctx, in)) != null) {
-				builder.addReponseCommandParam(param);
+				addReponseCommandParam(param, out);
 			}
 
 			if (paramDecoder.getState() == ParameterDecoder.State.Ended) {
-				out.add(builder.build());
+				if (literalStream == null || !literalStream.end(out)) {
+					out.add(builder.build());
+				}
 				resetNow();
 				break;
 			}
 		}
+		break;
+
+		case READ_FETCH:
+			decodeFetch(ctx, in, out);
+			break;
+
+		case READ_SEARCH: {
+			ImapResponse response = searchDecoder.decode(ctx, in);
+			if (response != null) {
+				out.add(response);
+				resetNow();
+			}
+			break;
+		}
 
 		default:
 		}
 
 	}
 
+	private void decodeFetch(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+		FetchResponse response = fetchDecoder.decode(ctx, in);
+		if (response != null) {
+			out.add(response);
+			resetNow();
+		}
+	}
+
+	private void addReponseCommandParam(CommandParameter param, List<Object> out) {
+		if (literalStream == null || !literalStream.add(param, out)) {
+			builder.addReponseCommandParam(param);
+			if (literalStream != null && param.isPartial()) {
+				out.add(builder.build());
+				literalStream.start();
+			}
+		}
+	}
+
 	private void checkAndSkipSpace(ByteBuf in) {
 		if (in.getByte(in.readerIndex()) == ' ') {
 			in.skipBytes(1);
@@ -171,8 +265,8 @@ public class ImapResponseDecoder extends ByteToMessageDecoder {
 
 	}
 
-	private String readMessage(ByteBuf in) {
-		String msg = lineDecoder.parse(in);
+	private AsciiString readMessage(ByteBuf in) {
+		AsciiString msg = lineDecoder.parse(in);
 		if (msg != null) {
 			lineDecoder.reset();
 		}
@@ -180,27 +274,58 @@ public class ImapResponseDecoder extends ByteToMessageDecoder {
 		return msg;
 	}
 
-	private boolean isStatusResponse(String value) {
-		return (value.equals("OK") || value.equals("NO") || value.equals("BAD") || value.equals("PREAUTH")
-				|| value.equals("BYE"));
+	private boolean isSearchResponse(ImapKeyword keyword) {
+		return keyword == ImapKeyword.SEARCH || keyword == ImapKeyword.SORT || keyword == ImapKeyword.ESEARCH;
 	}
 
-	private boolean isNumber(String atom) {
-		try {
-			Integer.parseInt(atom);
+	private boolean isStatusResponse(ImapKeyword keyword) {
+		if (keyword == null) {
+			return false;
+		}
+		switch (keyword) {
+		case OK:
+		case NO:
+		case BAD:
+		case PREAUTH:
+		case BYE:
 			return true;
-		} catch (Exception e) {
+		default:
 			return false;
 		}
 	}
 
+	@Override
+	protected void handlerRemoved0(ChannelHandlerContext ctx) throws Exception {
+		// drops a literal being spooled
+		discard();
+	}
+
+	/**
+	 * Drops the message being decoded, releasing what was read of it.
+	 */
+	private void discard() {
+		builder.release();
+		resetNow();
+	}
+
 	private void resetNow() {
-		builder = new ImapResponseBuilder();
+		builder.reset();
 		atomDecoder.reset();
 		currentState = State.READ_TAG;
 		paramDecoder.reset();
-		paramStatusCodeDecoder.reset();
+		if (paramStatusCodeDecoder != null) {
+			paramStatusCodeDecoder.reset();
+		}
+		if (fetchDecoder != null) {
+			fetchDecoder.reset();
+		}
+		if (searchDecoder != null) {
+			searchDecoder.reset();
+		}
 		lineDecoder.reset();
+		if (literalStream != null) {
+			literalStream.reset();
+		}
 	}
 
 }
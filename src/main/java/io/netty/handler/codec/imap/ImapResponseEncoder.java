@@ -2,22 +2,34 @@ package io.netty.handler.codec.imap;
 
 import java.util.List;
 
-import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageEncoder;
 
+/**
+ * Encodes {@link ImapResponse} and streamed {@link ImapLiteralContent} messages.
+ * Literal payloads are emitted as retained buffers of their own so they are
+ * written without being copied. Flushing is left to the caller.
+ */
 public class ImapResponseEncoder extends MessageToMessageEncoder<Object> {
 
+	@Override
+	public boolean acceptOutboundMessage(Object msg) throws Exception {
+		return msg instanceof ImapResponse || msg instanceof ImapLiteralContent;
+	}
+
 	@Override
 	protected void encode(ChannelHandlerContext ctx, Object msg, List<Object> out) throws Exception {
+		ImapOutput output = new ImapOutput(ctx.alloc(), out);
 		if (msg instanceof ImapResponse) {
 			ImapResponse cmd = (ImapResponse) msg;
-			ByteBuf buf = ctx.alloc().buffer();
-			cmd.write(buf);
-			buf.writeByte('\r');
-			buf.writeByte('\n');
-			ctx.writeAndFlush(buf);
+			cmd.write(output);
+			if (!cmd.partial()) {
+				output.endLine();
+			}
+		} else {
+			output.write((ImapLiteralContent) msg);
 		}
+		output.finish();
 	}
 
-}
\ No newline at end of file
+}
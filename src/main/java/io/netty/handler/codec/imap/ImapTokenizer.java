@@ -0,0 +1,460 @@
+/*
+ * Copyright 2016 Laurent Belmonte <laurent.belmonte@gmail.com>
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.imap;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.TooLongFrameException;
+
+/**
+ * Pull parser walking IMAP commands and responses token by token without
+ * creating any object: {@link #nextToken(ByteBuf)} returns the type of the
+ * next token and consumes it, its bytes stay in the buffer at
+ * {@link #offset()} for {@link #length()} bytes until the buffer is
+ * discarded. A token split across reads is resumed by the next call with
+ * more input, <code>null</code> meaning that more input is needed.
+ *
+ * <pre>
+ * ImapTokenizer.Token token;
+ * while ((token = tokenizer.nextToken(in)) != null) {
+ * 	if (token == ImapTokenizer.Token.ATOM) {
+ * 		in.toString(tokenizer.offset(), tokenizer.length(), CharsetUtil.US_ASCII);
+ * 	}
+ * }
+ * </pre>
+ *
+ * The tokenizer does not know the IMAP grammar: free text, as found after
+ * <code>OK</code>, is read with {@link #nextText(ByteBuf)} and response codes
+ * are announced with {@link #startResponseCode()}.
+ */
+public class ImapTokenizer {
+
+	public enum Token {
+		/**
+		 * An atom that is neither a number nor <code>NIL</code>.
+		 */
+		ATOM,
+		/**
+		 * An unsigned number, see {@link ImapTokenizer#number()}.
+		 */
+		NUMBER,
+		NIL,
+		/**
+		 * A quoted string, {@link ImapTokenizer#offset()} points after the
+		 * opening quote.
+		 */
+		QUOTED_STRING,
+		LIST_START,
+		LIST_END,
+		/**
+		 * A literal length, {@link ImapTokenizer#number()} bytes of
+		 * {@link #LITERAL_DATA} follow.
+		 */
+		LITERAL,
+		/**
+		 * The part of a literal available in the buffer,
+		 * {@link ImapTokenizer#remaining()} bytes are still to come.
+		 */
+		LITERAL_DATA,
+		/**
+		 * The rest of a line, see {@link ImapTokenizer#nextText(ByteBuf)}.
+		 */
+		TEXT,
+		/**
+		 * The <code>]</code> closing a response code.
+		 */
+		CODE_END,
+		LINE_END
+	}
+
+	private enum State {
+		TOKEN, SEPARATOR, ATOM, QUOTED_STRING, LITERAL_LENGTH, LITERAL, TEXT
+	}
+
+	private static final byte QUOTE = '"';
+	private static final byte OPEN_BRACKET = '{';
+	private static final byte CLOSE_BRACKET = '}';
+	private static final byte OPEN_PARENTHESES = '(';
+	private static final byte CLOSE_PARENTHESES = ')';
+	private static final byte CLOSE_SQUARE_BRACKET = ']';
+	private static final byte CR = 13;
+	private static final byte LF = 10;
+	private static final byte SP = 32;
+
+	private static final int MAX_TOKEN_LENGTH = 4096;
+
+	private static final byte ATOM_END = 1;
+	private static final byte CODE_ATOM_END = 2;
+	private static final byte DIGIT = 4;
+
+	/**
+	 * Classes of every byte value, as a bit set of the constants above.
+	 */
+	private static final byte[] CLASSES = new byte[256];
+
+	static {
+		for (byte b : new byte[] { SP, CR, LF, CLOSE_PARENTHESES }) {
+			CLASSES[b] |= ATOM_END | CODE_ATOM_END;
+		}
+		CLASSES[CLOSE_SQUARE_BRACKET] |= CODE_ATOM_END;
+		for (int b = '0'; b <= '9'; b++) {
+			CLASSES[b] |= DIGIT;
+		}
+	}
+
+	private State state = State.TOKEN;
+	private boolean responseCode;
+	// bytes of the current token scanned by previous calls
+	private int size;
+	private boolean numeric;
+	private boolean plus;
+	private long number;
+	private int remaining;
+	private int offset;
+	private int length;
+
+	/**
+	 * Returns the next token, or <code>null</code> when the buffer holds no
+	 * complete token.
+	 *
+	 * @throws CorruptedFrameException
+	 *             when the input is not IMAP
+	 * @throws TooLongFrameException
+	 *             when a token is larger than 4096 bytes
+	 */
+	public Token nextToken(ByteBuf in) {
+		for (;;) {
+			switch (state) {
+			case SEPARATOR:
+			case TOKEN: {
+				if (!in.isReadable()) {
+					return null;
+				}
+				byte firstByte = in.getByte(in.readerIndex());
+				if (state == State.SEPARATOR) {
+					switch (firstByte) {
+					case SP:
+						in.skipBytes(1);
+						state = State.TOKEN;
+						continue;
+					case CR:
+						if (responseCode) {
+							throw new CorruptedFrameException("byte " + (char) firstByte);
+						}
+						in.skipBytes(1);
+						continue;
+					case LF:
+						if (responseCode) {
+							throw new CorruptedFrameException("byte " + (char) firstByte);
+						}
+						in.skipBytes(1);
+						state = State.TOKEN;
+						return Token.LINE_END;
+					case CLOSE_SQUARE_BRACKET:
+						if (responseCode) {
+							in.skipBytes(1);
+							responseCode = false;
+							return Token.CODE_END;
+						}
+						break;
+					case CLOSE_PARENTHESES:
+						break;
+					default:
+						throw new CorruptedFrameException("byte " + (char) firstByte);
+					}
+				}
+
+				switch (firstByte) {
+				case SP:
+					in.skipBytes(1);
+					state = State.TOKEN;
+					continue;
+				case QUOTE:
+					state = State.QUOTED_STRING;
+					continue;
+				case OPEN_BRACKET:
+					state = State.LITERAL_LENGTH;
+					continue;
+				case OPEN_PARENTHESES:
+					in.skipBytes(1);
+					state = State.TOKEN;
+					return token(in.readerIndex() - 1, 1, Token.LIST_START);
+				case CLOSE_PARENTHESES:
+					in.skipBytes(1);
+					state = State.SEPARATOR;
+					return token(in.readerIndex() - 1, 1, Token.LIST_END);
+				default:
+					state = State.ATOM;
+					continue;
+				}
+			}
+			case ATOM:
+				return atom(in);
+			case QUOTED_STRING:
+				return quotedString(in);
+			case LITERAL_LENGTH:
+				return literalLength(in);
+			case LITERAL: {
+				if (!in.isReadable()) {
+					return null;
+				}
+				int read = Math.min(remaining, in.readableBytes());
+				remaining -= read;
+				if (remaining == 0) {
+					state = State.SEPARATOR;
+				}
+				in.skipBytes(read);
+				return token(in.readerIndex() - read, read, Token.LITERAL_DATA);
+			}
+			case TEXT:
+				return nextText(in);
+			default:
+				throw new IllegalStateException(state.name());
+			}
+		}
+	}
+
+	/**
+	 * Returns the rest of the current line, without the space separating it
+	 * from the previous token and without its CRLF, or <code>null</code> when
+	 * the line is not complete. The line end is consumed: the next token
+	 * starts a new line.
+	 */
+	public Token nextText(ByteBuf in) {
+		if (state == State.SEPARATOR || state == State.TOKEN) {
+			if (!in.isReadable()) {
+				return null;
+			} else if (state == State.SEPARATOR && in.getByte(in.readerIndex()) == SP) {
+				in.skipBytes(1);
+			}
+			state = State.TEXT;
+			size = 0;
+		} else if (state != State.TEXT) {
+			throw new IllegalStateException(state.name());
+		}
+
+		int start = in.readerIndex();
+		int pos = ByteScanner.indexOf(in, start + size, in.writerIndex(), LF);
+		if (pos == -1) {
+			size = in.readableBytes();
+			// leaves room for the CR of the line end
+			if (size > MAX_TOKEN_LENGTH + 1) {
+				throw tooLong();
+			}
+			return null;
+		}
+		int end = pos;
+		while (end > start && in.getByte(end - 1) == CR) {
+			end--;
+		}
+		if (end - start > MAX_TOKEN_LENGTH) {
+			throw tooLong();
+		}
+		in.readerIndex(pos + 1);
+		size = 0;
+		state = State.TOKEN;
+		responseCode = false;
+		return token(start, end - start, Token.TEXT);
+	}
+
+	/**
+	 * To be called once the <code>[</code> opening a response code is
+	 * skipped: the next token is the code name, and <code>]</code> ends atoms
+	 * until it is returned as {@link Token#CODE_END}.
+	 */
+	public void startResponseCode() {
+		state = State.TOKEN;
+		responseCode = true;
+		size = 0;
+	}
+
+	/**
+	 * Index of the first byte of the last token.
+	 */
+	public int offset() {
+		return offset;
+	}
+
+	/**
+	 * Length in bytes of the last token.
+	 */
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * Value of the last {@link Token#NUMBER}, or length of the last
+	 * {@link Token#LITERAL}.
+	 */
+	public long number() {
+		return number;
+	}
+
+	/**
+	 * Whether the last {@link Token#LITERAL} is a non synchronizing one.
+	 */
+	public boolean isLiteralPlus() {
+		return plus;
+	}
+
+	/**
+	 * Literal bytes following the last {@link Token#LITERAL_DATA}.
+	 */
+	public int remaining() {
+		return remaining;
+	}
+
+	/**
+	 * Forgets any partial token and expects a new line.
+	 */
+	public void reset() {
+		state = State.TOKEN;
+		responseCode = false;
+		size = 0;
+		remaining = 0;
+	}
+
+	/**
+	 * Like {@link #reset()}, but expects a separator first, as after a token,
+	 * optionally within a response code.
+	 */
+	void resetAfterToken(boolean responseCode) {
+		reset();
+		state = State.SEPARATOR;
+		this.responseCode = responseCode;
+	}
+
+	private Token token(int offset, int length, Token token) {
+		this.offset = offset;
+		this.length = length;
+		return token;
+	}
+
+	private Token atom(ByteBuf in) {
+		if (size == 0) {
+			numeric = true;
+			number = 0;
+		}
+		int atomEnd = responseCode ? CODE_ATOM_END : ATOM_END;
+		int start = in.readerIndex();
+		int end = Math.min(in.writerIndex(), start + MAX_TOKEN_LENGTH + 1);
+		byte[] array = in.hasArray() ? in.array() : null;
+		int arrayOffset = array != null ? in.arrayOffset() : 0;
+		boolean numeric = this.numeric;
+		long number = this.number;
+		int pos = start + size;
+		for (; pos < end; pos++) {
+			byte value = array != null ? array[arrayOffset + pos] : in.getByte(pos);
+			int type = CLASSES[value & 0xFF];
+			if ((type & atomEnd) != 0) {
+				break;
+			} else if (numeric) {
+				int digit = value - '0';
+				if ((type & DIGIT) == 0 || number > (Long.MAX_VALUE - digit) / 10) {
+					numeric = false;
+				} else {
+					number = number * 10 + digit;
+				}
+			}
+		}
+		size = pos - start;
+		this.numeric = numeric;
+		this.number = number;
+
+		if (size > MAX_TOKEN_LENGTH) {
+			throw tooLong();
+		} else if (pos == in.writerIndex()) {
+			return null;
+		}
+
+		int atomLength = size;
+		in.readerIndex(pos);
+		size = 0;
+		state = State.SEPARATOR;
+		if (numeric && atomLength > 0) {
+			return token(start, atomLength, Token.NUMBER);
+		} else if (atomLength == 3 && in.getByte(start) == 'N' && in.getByte(start + 1) == 'I'
+				&& in.getByte(start + 2) == 'L') {
+			return token(start, atomLength, Token.NIL);
+		}
+		return token(start, atomLength, Token.ATOM);
+	}
+
+	private Token quotedString(ByteBuf in) {
+		int start = in.readerIndex() + 1;
+		int end = Math.min(in.writerIndex(), start + MAX_TOKEN_LENGTH + 1);
+		int pos = ByteScanner.indexOf(in, start + size, end, QUOTE, CR, LF);
+		if (pos == -1) {
+			size = end - start;
+			if (size > MAX_TOKEN_LENGTH) {
+				throw tooLong();
+			}
+			return null;
+		} else if (in.getByte(pos) != QUOTE) {
+			throw new CorruptedFrameException();
+		}
+
+		in.readerIndex(pos + 1);
+		size = 0;
+		state = State.SEPARATOR;
+		return token(start, pos - start, Token.QUOTED_STRING);
+	}
+
+	private Token literalLength(ByteBuf in) {
+		if (size == 0) {
+			number = 0;
+			plus = false;
+		}
+		int pos = -1;
+		for (int i = in.readerIndex() + 1 + size, end = in.writerIndex(); i < end; i++) {
+			byte value = in.getByte(i);
+			if (value >= '0' && value <= '9' && !plus) {
+				number = number * 10 + (value - '0');
+				if (number > Integer.MAX_VALUE) {
+					throw new TooLongFrameException("literal is larger than " + Integer.MAX_VALUE + " bytes.");
+				}
+			} else if (value == '+' && size > 0 && !plus) {
+				plus = true;
+			} else if (value == CLOSE_BRACKET && size > 0) {
+				pos = i;
+				break;
+			} else {
+				throw new CorruptedFrameException();
+			}
+			if (++size >= MAX_TOKEN_LENGTH) {
+				throw new TooLongFrameException("literal length is larger than " + MAX_TOKEN_LENGTH + " bytes.");
+			}
+		}
+
+		if (pos == -1 || in.writerIndex() - pos < 3) {
+			// wait for the closing bracket and the CRLF that follows it
+			return null;
+		} else if (in.getByte(pos + 1) != CR || in.getByte(pos + 2) != LF) {
+			throw new CorruptedFrameException("literal length not followed by CRLF");
+		}
+
+		int start = in.readerIndex();
+		in.readerIndex(pos + 3);
+		size = 0;
+		remaining = (int) number;
+		state = remaining > 0 ? State.LITERAL : State.SEPARATOR;
+		return token(start, pos + 1 - start, Token.LITERAL);
+	}
+
+	private static TooLongFrameException tooLong() {
+		return new TooLongFrameException("token is larger than " + MAX_TOKEN_LENGTH + " bytes.");
+	}
+}
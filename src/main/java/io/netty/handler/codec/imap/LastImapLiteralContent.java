@@ -0,0 +1,57 @@
+/*
+ * Copyright 2016 Laurent Belmonte <laurent.belmonte@gmail.com>
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.imap;
+
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * The last chunk of a streamed literal. It carries the parameters decoded
+ * after the literal, up to the end of the line or up to the next literal. In
+ * the latter case the trailing parameters end with a partial
+ * {@link LiteralParameter} and more {@link ImapLiteralContent} follows.
+ */
+public interface LastImapLiteralContent extends ImapLiteralContent {
+
+	List<CommandParameter> trailingParameters();
+
+	boolean partial();
+
+	@Override
+	LastImapLiteralContent copy();
+
+	@Override
+	LastImapLiteralContent duplicate();
+
+	@Override
+	LastImapLiteralContent retainedDuplicate();
+
+	@Override
+	LastImapLiteralContent replace(ByteBuf content);
+
+	@Override
+	LastImapLiteralContent retain();
+
+	@Override
+	LastImapLiteralContent retain(int increment);
+
+	@Override
+	LastImapLiteralContent touch();
+
+	@Override
+	LastImapLiteralContent touch(Object hint);
+}
@@ -16,50 +16,52 @@
 package io.netty.handler.codec.imap;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.ByteBufProcessor;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.handler.codec.TooLongFrameException;
-import io.netty.util.internal.AppendableCharSequence;
+import io.netty.util.AsciiString;
 
-public class LineDecoder implements ByteBufProcessor {
+public class LineDecoder {
 
 	public static final byte CR = 13;
 	public static final byte LF = 10;
 	private static final int MAX_ATOM_LENGTH = 500;
 
-	private final AppendableCharSequence seq = new AppendableCharSequence(128);
+	private int scanned = 0;
 
-	private int size = 0;
-
-	public String parse(ByteBuf buffer) {
-		int pos = buffer.forEachByte((ByteBufProcessor) this);
+	/**
+	 * Scans up to the end of line, resuming after the bytes already scanned by
+	 * a previous call that ran out of input.
+	 */
+	public AsciiString parse(ByteBuf buffer) {
+		int start = buffer.readerIndex();
+		int pos = ByteScanner.indexOf(buffer, start + scanned, buffer.writerIndex(), LF);
 		if (pos == -1) {
+			scanned = buffer.readableBytes();
+			// leaves room for the CR of the line end
+			if (scanned > MAX_ATOM_LENGTH + 1) {
+				throw tooLong();
+			}
 			return null;
 		} else {
+			int end = pos;
+			while (end > start && buffer.getByte(end - 1) == CR) {
+				end--;
+			}
+			if (end - start > MAX_ATOM_LENGTH) {
+				throw tooLong();
+			}
+			AsciiString line = new AsciiString(ByteBufUtil.getBytes(buffer, start, end - start), false);
 			buffer.readerIndex(pos + 1);
-			return new String(seq.toString());
+			reset();
+			return line;
 		}
 	}
 
 	void reset() {
-		seq.reset();
-		size = 0;
+		scanned = 0;
 	}
 
-	@Override
-	public boolean process(byte value) throws Exception {
-		char nextByte = (char) value;
-		if (nextByte == CR) {
-			return true;
-		} else if (nextByte == LF) {
-			return false;
-		} else {
-			if (size >= MAX_ATOM_LENGTH) {
-				throw new TooLongFrameException("ATOM is larger than " + MAX_ATOM_LENGTH + " bytes.");
-			}
-			size++;
-			seq.append(nextByte);
-			return true;
-		}
-
+	private static TooLongFrameException tooLong() {
+		return new TooLongFrameException("ATOM is larger than " + MAX_ATOM_LENGTH + " bytes.");
 	}
 }
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2016 Laurent Belmonte <laurent.belmonte@gmail.com>
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.imap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.AbstractReferenceCounted;
+import io.netty.util.AsciiString;
+import io.netty.util.CharsetUtil;
+
+/**
+ * A parenthesized list holding its items, nested lists included, as decoded
+ * with {@link ImapDecoderConfig#structuredLists(boolean)}. Items following
+ * an atom at an even position are indexed by that atom, so that the value of
+ * a FETCH attribute such as <code>UID</code> is found with
+ * {@link #get(CharSequence)} without scanning the list.
+ *
+ * Releasing the list releases its items.
+ */
+public class ListParameter extends AbstractReferenceCounted implements CommandParameter {
+
+	private final List<CommandParameter> items;
+	private Map<AsciiString, CommandParameter> index;
+
+	public ListParameter() {
+		this.items = new ArrayList<>();
+	}
+
+	public ListParameter(List<CommandParameter> items) {
+		this.items = new ArrayList<>(items.size());
+		for (CommandParameter item : items) {
+			add(item);
+		}
+	}
+
+	/**
+	 * Appends an item, indexing it when it is the value of an atom key.
+	 */
+	public ListParameter add(CommandParameter item) {
+		int size = items.size();
+		if (size % 2 == 1) {
+			CommandParameter key = items.get(size - 1);
+			if (key instanceof AtomParameter) {
+				if (index == null) {
+					index = new HashMap<>();
+				}
+				index.putIfAbsent(((AtomParameter) key).getValue().toUpperCase(), item);
+			}
+		}
+		items.add(item);
+		return this;
+	}
+
+	public List<CommandParameter> getItems() {
+		return items;
+	}
+
+	/**
+	 * The item following the atom <code>key</code>, compared ignoring case,
+	 * or <code>null</code>.
+	 */
+	public CommandParameter get(CharSequence key) {
+		return index == null ? null : index.get(AsciiString.of(key).toUpperCase());
+	}
+
+	/**
+	 * The item at <code>index</code> as a string: the value of an atom,
+	 * number or quoted string, or the UTF-8 content of a literal.
+	 * <code>NIL</code>, lists and missing items give <code>null</code>.
+	 */
+	public String getString(int index) {
+		CommandParameter item = index < items.size() ? items.get(index) : null;
+		if (item instanceof QuotedStringParameter) {
+			return ((QuotedStringParameter) item).getValue().toString();
+		} else if (item instanceof AtomParameter) {
+			return ((AtomParameter) item).getValue().toString();
+		} else if (item instanceof NumericParameter) {
+			return item.toString();
+		} else if (item instanceof LiteralParameter) {
+			return ((LiteralParameter) item).content().toString(CharsetUtil.UTF_8);
+		}
+		return null;
+	}
+
+	/**
+	 * The item at <code>index</code> when it is a list, or <code>null</code>.
+	 */
+	public ListParameter getList(int index) {
+		CommandParameter item = index < items.size() ? items.get(index) : null;
+		return item instanceof ListParameter ? (ListParameter) item : null;
+	}
+
+	@Override
+	public boolean isPartial() {
+		return false;
+	}
+
+	@Override
+	public void write(ByteBuf buf) {
+		buf.writeByte('(');
+		for (int i = 0; i < items.size(); i++) {
+			if (i > 0) {
+				buf.writeByte(' ');
+			}
+			items.get(i).write(buf);
+		}
+		buf.writeByte(')');
+	}
+
+	@Override
+	public void write(ImapOutput out) {
+		out.buffer().writeByte('(');
+		for (int i = 0; i < items.size(); i++) {
+			if (i > 0) {
+				out.buffer().writeByte(' ');
+			}
+			items.get(i).write(out);
+		}
+		out.buffer().writeByte(')');
+	}
+
+	@Override
+	public ListParameter retainedDuplicate() {
+		return new ListParameter(CommandParameter.retainedDuplicate(items));
+	}
+
+	@Override
+	public ListParameter retain() {
+		super.retain();
+		return this;
+	}
+
+	@Override
+	public ListParameter touch() {
+		return touch(null);
+	}
+
+	@Override
+	public ListParameter touch(Object hint) {
+		CommandParameter.touch(items, hint);
+		return this;
+	}
+
+	@Override
+	protected void deallocate() {
+		CommandParameter.release(items);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("(");
+		for (int i = 0; i < items.size(); i++) {
+			if (i > 0) {
+				sb.append(' ');
+			}
+			sb.append(items.get(i));
+		}
+		return sb.append(')').toString();
+	}
+
+	@Override
+	public int hashCode() {
+		return items.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		ListParameter other = (ListParameter) obj;
+		return items.equals(other.items);
+	}
+
+}
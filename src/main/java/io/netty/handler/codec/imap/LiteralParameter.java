@@ -20,8 +20,9 @@ import java.nio.charset.Charset;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
+import io.netty.util.ReferenceCounted;
 
-public class LiteralParameter implements CommandParameter {
+public class LiteralParameter implements CommandParameter, ReferenceCounted {
 
 	private int total;
 	private ByteBuf buffer;
@@ -33,6 +34,18 @@ public class LiteralParameter implements CommandParameter {
 		this.plus = plus;
 	}
 
+	public ByteBuf content() {
+		return buffer;
+	}
+
+	public int getLength() {
+		return total;
+	}
+
+	public boolean isPlus() {
+		return plus;
+	}
+
 	@Override
 	public String toString() {
 		ByteBuf buf = Unpooled.buffer();
@@ -47,6 +60,17 @@ public class LiteralParameter implements CommandParameter {
 
 	@Override
 	public void write(ByteBuf buf) {
+		writeLength(buf);
+		buf.writeBytes(buffer, buffer.readerIndex(), buffer.readableBytes());
+	}
+
+	@Override
+	public void write(ImapOutput out) {
+		writeLength(out.buffer());
+		out.add(buffer);
+	}
+
+	private void writeLength(ByteBuf buf) {
 		buf.writeByte('{');
 		ByteBufUtil.writeAscii(buf, Integer.toString(total));
 		if (plus) {
@@ -55,7 +79,50 @@ public class LiteralParameter implements CommandParameter {
 		buf.writeByte('}');
 		buf.writeByte('\r');
 		buf.writeByte('\n');
-		buf.writeBytes(buffer.slice());
+	}
+
+	@Override
+	public LiteralParameter retainedDuplicate() {
+		return new LiteralParameter(buffer.retainedDuplicate(), total, plus);
+	}
+
+	@Override
+	public int refCnt() {
+		return buffer.refCnt();
+	}
+
+	@Override
+	public LiteralParameter retain() {
+		buffer.retain();
+		return this;
+	}
+
+	@Override
+	public LiteralParameter retain(int increment) {
+		buffer.retain(increment);
+		return this;
+	}
+
+	@Override
+	public LiteralParameter touch() {
+		buffer.touch();
+		return this;
+	}
+
+	@Override
+	public LiteralParameter touch(Object hint) {
+		buffer.touch(hint);
+		return this;
+	}
+
+	@Override
+	public boolean release() {
+		return buffer.release();
+	}
+
+	@Override
+	public boolean release(int decrement) {
+		return buffer.release(decrement);
 	}
 
 	@Override
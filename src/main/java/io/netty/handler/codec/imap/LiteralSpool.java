@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016 Laurent Belmonte <laurent.belmonte@gmail.com>
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.imap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+/**
+ * Spools a literal to a temporary file as it arrives and maps it back once
+ * complete. The file is deleted as soon as it is mapped, the mapping lives
+ * until the returned buffer is garbage collected.
+ */
+class LiteralSpool {
+
+	private final File file;
+	private final RandomAccessFile raf;
+	private final FileChannel channel;
+
+	LiteralSpool(File directory) throws IOException {
+		file = File.createTempFile("imap-literal", ".tmp", directory);
+		try {
+			raf = new RandomAccessFile(file, "rw");
+		} catch (IOException e) {
+			file.delete();
+			throw e;
+		}
+		channel = raf.getChannel();
+	}
+
+	void write(ByteBuf in, int index, int length) throws IOException {
+		while (length > 0) {
+			int written = in.getBytes(index, channel, length);
+			index += written;
+			length -= written;
+		}
+	}
+
+	ByteBuf map() throws IOException {
+		try {
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.position());
+			return Unpooled.wrappedBuffer(mapped);
+		} finally {
+			close();
+		}
+	}
+
+	void close() {
+		try {
+			raf.close();
+		} catch (IOException e) {
+			// nothing left to do with it
+		}
+		if (!file.delete()) {
+			file.deleteOnExit();
+		}
+	}
+
+}
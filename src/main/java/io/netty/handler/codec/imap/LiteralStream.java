@@ -0,0 +1,84 @@
+/*
+ * Copyright 2016 Laurent Belmonte <laurent.belmonte@gmail.com>
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.imap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Turns the literal chunks a streaming {@link ParameterDecoder} returns into
+ * {@link ImapLiteralContent} messages. The message head is emitted by the
+ * decoder itself when it sees the partial {@link LiteralParameter}, after
+ * which every parameter of the line goes through {@link #add}.
+ */
+class LiteralStream {
+
+	private boolean started;
+	private ByteBuf lastContent;
+	private List<CommandParameter> trailingParameters;
+
+	void start() {
+		started = true;
+	}
+
+	boolean add(CommandParameter param, List<Object> out) {
+		if (!started) {
+			return false;
+		}
+
+		if (param instanceof ChunkParameter) {
+			ChunkParameter chunk = (ChunkParameter) param;
+			if (chunk.isLast()) {
+				lastContent = chunk.content();
+				trailingParameters = new ArrayList<>();
+			} else {
+				out.add(new DefaultImapLiteralContent(chunk.content()));
+			}
+		} else {
+			trailingParameters.add(param);
+			if (param.isPartial()) {
+				flush(out);
+			}
+		}
+		return true;
+	}
+
+	boolean end(List<Object> out) {
+		if (!started) {
+			return false;
+		}
+		flush(out);
+		return true;
+	}
+
+	private void flush(List<Object> out) {
+		out.add(new DefaultLastImapLiteralContent(lastContent, trailingParameters));
+		lastContent = null;
+		trailingParameters = null;
+	}
+
+	void reset() {
+		if (lastContent != null) {
+			lastContent.release();
+		}
+		CommandParameter.release(trailingParameters);
+		started = false;
+		lastContent = null;
+		trailingParameters = null;
+	}
+}
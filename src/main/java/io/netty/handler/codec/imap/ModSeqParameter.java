@@ -0,0 +1,81 @@
+/*
+ * Copyright 2016 Laurent Belmonte <laurent.belmonte@gmail.com>
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.imap;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+
+/**
+ * A 63 bit mod-sequence value (RFC 7162) larger than 2^32 - 1.
+ */
+public class ModSeqParameter implements NumericParameter {
+
+	private final long value;
+
+	public ModSeqParameter(long value) {
+		if (value < 0) {
+			throw new IllegalArgumentException("value: " + value + " (expected: >= 0)");
+		}
+		this.value = value;
+	}
+
+	@Override
+	public boolean isPartial() {
+		return false;
+	}
+
+	public long getValue() {
+		return value;
+	}
+
+	@Override
+	public long longValue() {
+		return value;
+	}
+
+	@Override
+	public String toString() {
+		return Long.toString(value);
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + (int) (value ^ (value >>> 32));
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		ModSeqParameter other = (ModSeqParameter) obj;
+		if (value != other.value)
+			return false;
+		return true;
+	}
+
+	@Override
+	public void write(ByteBuf buf) {
+		ByteBufUtil.writeAscii(buf, Long.toString(value));
+	}
+
+}
@@ -20,6 +20,8 @@ import io.netty.buffer.ByteBufUtil;
 
 public class NilParameter implements CommandParameter {
 
+	public static final NilParameter INSTANCE = new NilParameter();
+
 	@Override
 	public boolean isPartial() {
 		return false;
@@ -18,7 +18,7 @@ package io.netty.handler.codec.imap;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufUtil;
 
-public class NumberParameter implements CommandParameter {
+public class NumberParameter implements NumericParameter {
 
 	private final int value;
 
@@ -35,6 +35,16 @@ public class NumberParameter implements CommandParameter {
 		return value;
 	}
 
+	@Override
+	public long longValue() {
+		return value;
+	}
+
+	@Override
+	public String toString() {
+		return Integer.toString(value);
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -19,6 +19,8 @@ import io.netty.buffer.ByteBuf;
 
 public class OpenListParameter implements CommandParameter {
 
+	public static final OpenListParameter INSTANCE = new OpenListParameter();
+
 	@Override
 	public boolean isPartial() {
 		return false;
@@ -15,324 +15,269 @@
  */
 package io.netty.handler.codec.imap;
 
+import java.io.IOException;
+import java.util.ArrayDeque;
+
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.CorruptedFrameException;
-import io.netty.handler.codec.TooLongFrameException;
-import io.netty.util.internal.AppendableCharSequence;
+import io.netty.handler.codec.DecoderException;
+import io.netty.util.AsciiString;
 
+/**
+ * Turns the tokens of an {@link ImapTokenizer} into {@link CommandParameter}s,
+ * from the separator following a command or response name up to the end of
+ * the line (or of the response code).
+ */
 public class ParameterDecoder {
 
-	private static final byte QUOTE = '"';
-	private static final byte OPEN_BRACKET = '{';
-	private static final byte CLOSE_BRACKET = '}';
-	private static final byte OPEN_PARENTHESES = '(';
-	private static final byte CLOSE_PARENTHESES = ')';
-	public static final byte CR = 13;
-	public static final byte LF = 10;
-	public static final byte SP = 32;
-
-	private static final int MAX_ATOM_LENGTH = 4096;
-
-	public static class LiteralLength {
-		public LiteralLength(int parseInt, boolean b) {
-			this.length = parseInt;
-			r = parseInt;
-			this.plus = b;
-		}
-
-		boolean plus;
-		int length;
-
-		private int r;
-
-		public boolean first() {
-			return (r - length) == 0;
-		}
-
-		public int remainingLength() {
-			return r;
-		}
-
-		public void read(int toRead) {
-			r = r - toRead;
-		}
-	}
-
 	public enum State {
-		EMPTY, READ_QUOTED_STRING, READ_LITERAL_LENGTH, READ_PARAM_LIST, READ_ATOM, END_PARAM_LIST, NEXT, Ended, READ_LITERAL
+		NEXT, Ended
 	}
 
-	private final AppendableCharSequence seq = new AppendableCharSequence(128);
+	private static final int MAX_COMPOSITEBUFFER_COMPONENTS = 1024;
+
+	private final ImapTokenizer tokenizer = new ImapTokenizer();
+	private State currentState;
+	private final boolean statusParameter;
+	// shared with the other decoders of the pipeline, not copied
+	private final ImapDecoderConfig config;
+	private final boolean streamLiterals;
+	private final boolean structuredLists;
+	private final boolean sequenceSets;
+	// literals are gathered into a single parameter, as inside a list
+	private final boolean wholeLiterals;
+	private int literalLength;
+	private boolean literalPlus;
+	private boolean literalStart;
+	private LiteralSpool spool;
+	// open structured lists, innermost first
+	private ArrayDeque<ListParameter> lists;
+	// content of a literal nested in a structured list, until it is complete
+	private CompositeByteBuf listLiteral;
 
-	private int size = 0;
+	public ParameterDecoder(boolean b) {
+		this(b, new ImapDecoderConfig());
+	}
 
-	private State currentState = State.NEXT;
-	private LiteralLength literalLength;
-	private boolean statusParameter;
+	public ParameterDecoder(boolean b, ImapDecoderConfig config) {
+		this(b, config, false);
+	}
 
-	public ParameterDecoder(boolean b) {
+	/**
+	 * @param values
+	 *            whether the decoder reads single values, as
+	 *            {@link ListParameter}s and whole literals, for a caller
+	 *            reading the surrounding tokens from {@link #tokenizer()}
+	 */
+	ParameterDecoder(boolean b, ImapDecoderConfig config, boolean values) {
 		statusParameter = b;
+		this.config = config;
+		// response codes are never streamed, they are part of a status line
+		streamLiterals = config.isStreamLiterals() && !b && !values;
+		structuredLists = config.isStructuredLists() || values;
+		sequenceSets = config.isSequenceSets();
+		wholeLiterals = values;
+		reset();
+	}
+
+	ImapTokenizer tokenizer() {
+		return tokenizer;
 	}
 
 	public State getState() {
 		return currentState;
 	}
 
+	/**
+	 * Returns the next complete parameter, or <code>null</code> when more
+	 * input is needed or the parameters ended (see {@link #getState()}).
+	 */
 	public CommandParameter next(ChannelHandlerContext ctx, ByteBuf in) {
-
-		if (in.readableBytes() == 0) {
-			return null;
-		}
-
-		byte firstByte = in.getByte(in.readerIndex());
-
-		if (currentState == State.EMPTY && firstByte == ' ') {
-			in.skipBytes(1);
-			return next(ctx, in);
-		}
-
-		switch (currentState) {
-		case NEXT: {
-			switch (firstByte) {
-			case SP:
-				currentState = State.EMPTY;
-				in.skipBytes(1);
-				return next(ctx, in);
-			case CR:
-				if (statusParameter) {
-					throw new CorruptedFrameException("byte " + new Character((char) firstByte));
-				}
-				in.skipBytes(1);
-				return next(ctx, in);
-			case LF:
-				if (statusParameter) {
-					throw new CorruptedFrameException("byte " + new Character((char) firstByte));
-				}
-				in.skipBytes(1);
-				currentState = State.Ended;
+		for (;;) {
+			ImapTokenizer.Token token = currentState == State.Ended ? null : tokenizer.nextToken(in);
+			if (token == null) {
 				return null;
-			case ']':
-				if (statusParameter) {
-					in.skipBytes(1);
-					currentState = State.Ended;
-					return null;
-				}
-			case CLOSE_PARENTHESES:
-				currentState = State.EMPTY;
-				break;
-			default:
-				throw new CorruptedFrameException("byte " + new Character((char) firstByte));
-
 			}
-		}
-
-		case EMPTY:
-			switch (firstByte) {
-			case QUOTE:
-				currentState = State.READ_QUOTED_STRING;
-				break;
-			case OPEN_BRACKET:
-				currentState = State.READ_LITERAL_LENGTH;
-				break;
-			case OPEN_PARENTHESES:
-				currentState = State.READ_PARAM_LIST;
-				break;
-			case CLOSE_PARENTHESES:
-				currentState = State.END_PARAM_LIST;
-				break;
-			default:
-				currentState = State.READ_ATOM;
+			CommandParameter param = next(ctx, in, token);
+			if (param != null || currentState == State.Ended) {
+				return param;
 			}
-		default:
 		}
+	}
 
-		switch (currentState) {
-		case EMPTY:
-			return null;
-		case READ_ATOM: {
-			CommandParameter atom = decodeAtom(in);
-			if (atom != null) {
-				currentState = State.NEXT;
+	/**
+	 * Handles a token read from {@link #tokenizer()}, returning the parameter
+	 * it completes or <code>null</code> when the parameter needs the
+	 * following tokens, read with {@link #next(ChannelHandlerContext, ByteBuf)}.
+	 */
+	CommandParameter next(ChannelHandlerContext ctx, ByteBuf in, ImapTokenizer.Token token) {
+		CommandParameter param;
+		switch (token) {
+		case ATOM:
+			// a lone * is also a LIST wildcard, it stays an atom
+			param = sequenceSets && tokenizer.length() > 1
+					? SequenceSetParameter.parse(in, tokenizer.offset(), tokenizer.length()) : null;
+			if (param == null) {
+				param = new AtomParameter(string(in));
 			}
-			return atom;
-		}
-		case READ_QUOTED_STRING: {
-			CommandParameter ret = decodeQuotedString(in);
-
-			if (ret != null) {
-				currentState = State.NEXT;
+			break;
+		case NUMBER:
+			param = numberParameter(tokenizer.number());
+			break;
+		case NIL:
+			param = NilParameter.INSTANCE;
+			break;
+		case QUOTED_STRING:
+			param = new QuotedStringParameter(string(in));
+			break;
+		case LIST_START:
+			if (structuredLists) {
+				if (lists == null) {
+					lists = new ArrayDeque<>();
+				}
+				lists.push(new ListParameter());
+				return null;
 			}
-			return ret;
-		}
-		case READ_PARAM_LIST: {
-			currentState = State.EMPTY;
-			in.skipBytes(1);
-			return new OpenListParameter();
-		}
-		case END_PARAM_LIST: {
-			currentState = State.NEXT;
-			in.skipBytes(1);
-			return new CloseListParameter();
-		}
-		case READ_LITERAL_LENGTH: {
-			literalLength = decodeLiteralLength(in);
-			if (literalLength != null) {
-				in.skipBytes(3);
-				currentState = State.READ_LITERAL;
-			} else {
+			param = OpenListParameter.INSTANCE;
+			break;
+		case LIST_END:
+			param = inList() ? lists.pop() : CloseListParameter.INSTANCE;
+			break;
+		case LITERAL:
+			literalLength = (int) tokenizer.number();
+			literalPlus = tokenizer.isLiteralPlus();
+			literalStart = true;
+			if (streamLiterals && !inList()) {
+				return new LiteralParameter(Unpooled.EMPTY_BUFFER, literalLength, literalPlus);
+			} else if (literalLength != 0) {
 				return null;
 			}
-		}
-		case READ_LITERAL: {
-			CommandParameter literalCommand = decodeLiteral(ctx, in);
-			if (literalLength == null) {
-				currentState = State.NEXT;
+			param = new LiteralParameter(Unpooled.EMPTY_BUFFER, 0, literalPlus);
+			break;
+		case LITERAL_DATA:
+			param = literalData(ctx, in);
+			if (param == null) {
+				return null;
 			}
-
-			return literalCommand;
-		}
+			break;
+		case CODE_END:
+		case LINE_END:
+			currentState = State.Ended;
+			// lists left open by the line end are closed
+			return closeLists();
 		default:
+			throw new IllegalStateException(token.name());
 		}
-		return null;
-	}
 
-	private CommandParameter decodeLiteral(ChannelHandlerContext ctx, ByteBuf in) {
-		int toRead = Math.min(literalLength.remainingLength(), in.readableBytes());
-		if (toRead == 0) {
-			return null;
+		if (!inList()) {
+			return param;
 		}
+		lists.peek().add(param);
+		return null;
+	}
 
-		ByteBuf read = ByteBufUtil.readBytes(ctx.alloc(), in, toRead);
-
-		CommandParameter ret = null;
-		if (literalLength.first()) {
-			ret = new LiteralParameter(read, literalLength.length, literalLength.plus);
-			literalLength.read(toRead);
-		} else {
-			literalLength.read(toRead);
-			ret = new ChunkParameter(read, literalLength.remainingLength() == 0);
-		}
+	private boolean inList() {
+		return lists != null && !lists.isEmpty();
+	}
 
-		if (literalLength.remainingLength() == 0) {
-			literalLength = null;
+	private ListParameter closeLists() {
+		ListParameter list = null;
+		while (inList()) {
+			ListParameter parent = lists.pop();
+			if (list != null) {
+				parent.add(list);
+			}
+			list = parent;
 		}
-
-		return ret;
+		return list;
 	}
 
-	private LiteralLength decodeLiteralLength(ByteBuf in) {
-		in.skipBytes(1);
-		int pos = in.forEachByte((value) -> {
+	private CommandParameter literalData(ChannelHandlerContext ctx, ByteBuf in) {
+		boolean first = literalStart;
+		boolean gather = inList() || wholeLiterals;
+		boolean stream = streamLiterals && !gather;
+		literalStart = false;
+		if (spool != null || (first && !stream && config.isSpoolLiterals()
+				&& literalLength >= config.getSpoolThreshold())) {
+			return spoolLiteral(in);
+		}
 
-			char nextByte = (char) value;
-			if ((nextByte >= '0' && nextByte <= '9') || nextByte == '+') {
-				if (size >= MAX_ATOM_LENGTH) {
-					throw new TooLongFrameException("ATOM is larger than " + MAX_ATOM_LENGTH + " bytes.");
-				}
-				size++;
-				seq.append(nextByte);
-				return true;
-			} else if (nextByte == CLOSE_BRACKET) {
-				return false;
-			} else {
-				throw new CorruptedFrameException();
+		ByteBuf read = content(ctx, in);
+		if (gather && (!first || tokenizer.remaining() != 0)) {
+			if (listLiteral == null) {
+				listLiteral = ctx.alloc().compositeBuffer(MAX_COMPOSITEBUFFER_COMPONENTS);
 			}
-		});
-
-		if (pos == -1) {
-			return null;
-		} else {
-			in.readerIndex(pos);
-			String v = new String(seq.toString());
-			LiteralLength ret = null;
-			if (v.charAt(v.length() - 1) == '+') {
-				ret = new LiteralLength(Integer.parseInt(v.substring(0, v.length() - 1)), true);
-			} else {
-				ret = new LiteralLength(Integer.parseInt(v), false);
+			listLiteral.addComponent(true, read);
+			if (tokenizer.remaining() != 0) {
+				return null;
 			}
-			seq.reset();
-			size = 0;
-			return ret;
+			read = listLiteral;
+			listLiteral = null;
+			return new LiteralParameter(read, literalLength, literalPlus);
+		} else if (first && !stream) {
+			return new LiteralParameter(read, literalLength, literalPlus);
 		}
+		return new ChunkParameter(read, tokenizer.remaining() == 0);
 	}
 
-	private CommandParameter decodeAtom(ByteBuf in) {
-		seq.reset();
-		size = 0;
-		int pos = in.forEachByte((value) -> {
+	private ByteBuf content(ChannelHandlerContext ctx, ByteBuf in) {
+		int offset = tokenizer.offset();
+		int length = tokenizer.length();
+		if (config.isZeroCopyLiterals()) {
+			return in.retainedSlice(offset, length);
+		}
+		return ctx.alloc().buffer(length).writeBytes(in, offset, length);
+	}
 
-			char nextByte = (char) value;
-			if (nextByte == LF || nextByte == CR || nextByte == SP || nextByte == CLOSE_PARENTHESES
-					|| (statusParameter && nextByte == ']')) {
-				return false;
-			} else {
-				if (size >= MAX_ATOM_LENGTH) {
-					throw new TooLongFrameException("ATOM is larger than " + MAX_ATOM_LENGTH + " bytes.");
-				}
-				size++;
-				seq.append(nextByte);
-				return true;
+	private CommandParameter spoolLiteral(ByteBuf in) {
+		try {
+			if (spool == null) {
+				spool = new LiteralSpool(config.getSpoolDirectory());
 			}
-		});
-
-		if (pos == -1) {
-			return null;
-		} else {
-			in.readerIndex(pos);
-			String value = new String(seq.toString());
-			CommandParameter ret = null;
-			char firstChar = value.charAt(0);
-			if (firstChar == 'N' && value.equals("NIL")) {
-				ret = new NilParameter();
-			} else {
-
-				try {
-					ret = new NumberParameter(Integer.parseInt(value));
-				} catch (Exception e) {
-					ret = new AtomParameter(value);
-				}
+			spool.write(in, tokenizer.offset(), tokenizer.length());
+			if (tokenizer.remaining() != 0) {
+				return null;
 			}
-			seq.reset();
-			size = 0;
-			return ret;
+			ByteBuf content = spool.map();
+			spool = null;
+			return new LiteralParameter(content, literalLength, literalPlus);
+		} catch (IOException e) {
+			throw new DecoderException("failed to spool literal", e);
 		}
 	}
 
-	private CommandParameter decodeQuotedString(ByteBuf in) {
-		in.skipBytes(1);
-		int pos = in.forEachByte((value) -> {
-
-			char nextByte = (char) value;
-			if (nextByte == QUOTE) {
-				return false;
-			} else if (nextByte == LF || nextByte == CR) {
-				throw new CorruptedFrameException();
-			} else {
-				if (size >= MAX_ATOM_LENGTH) {
-					throw new TooLongFrameException("ATOM is larger than " + MAX_ATOM_LENGTH + " bytes.");
-				}
-				size++;
-				seq.append(nextByte);
-				return true;
-			}
-		});
+	private AsciiString string(ByteBuf in) {
+		return new AsciiString(ByteBufUtil.getBytes(in, tokenizer.offset(), tokenizer.length()), false);
+	}
 
-		if (pos == -1) {
-			return null;
+	static CommandParameter numberParameter(long value) {
+		if (value <= Integer.MAX_VALUE) {
+			return new NumberParameter((int) value);
+		} else if (value <= 0xFFFFFFFFL) {
+			return new UnsignedNumberParameter(value);
 		} else {
-			in.readerIndex(pos + 1);
-			CommandParameter ret = new QuotedStringParameter(new String(seq.toString()));
-			seq.reset();
-			size = 0;
-			return ret;
+			return new ModSeqParameter(value);
 		}
 	}
 
 	public void reset() {
-		seq.reset();
-		size = 0;
+		if (spool != null) {
+			spool.close();
+			spool = null;
+		}
+		if (lists != null) {
+			while (!lists.isEmpty()) {
+				lists.pop().release();
+			}
+		}
+		if (listLiteral != null) {
+			listLiteral.release();
+			listLiteral = null;
+		}
+		tokenizer.resetAfterToken(statusParameter);
 		currentState = State.NEXT;
 	}
 
@@ -16,14 +16,18 @@
 package io.netty.handler.codec.imap;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.ByteBufUtil;
+import io.netty.util.AsciiString;
 
 public class QuotedStringParameter implements CommandParameter {
 
-	private final String value;
+	private final AsciiString value;
 
-	public QuotedStringParameter(String value) {
-		this.value = value;
+	public QuotedStringParameter(CharSequence value) {
+		this.value = value == null ? null : AsciiString.of(value);
+	}
+
+	public AsciiString getValue() {
+		return value;
 	}
 
 	@Override
@@ -64,9 +68,8 @@ public class QuotedStringParameter implements CommandParameter {
 	@Override
 	public void write(ByteBuf buf) {
 		buf.writeByte('"');
-		ByteBufUtil.writeAscii(buf, value);
+		buf.writeBytes(value.array(), value.arrayOffset(), value.length());
 		buf.writeByte('"');
-
 	}
 
 }
@@ -0,0 +1,297 @@
+/*
+ * Copyright 2016 Laurent Belmonte <laurent.belmonte@gmail.com>
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.imap;
+
+import java.util.Arrays;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.imap.ImapTokenizer.Token;
+import io.netty.util.CharsetUtil;
+
+/**
+ * Decodes the results of a SEARCH or SORT response into a
+ * {@link SearchResponse}, and the return data of an ESEARCH response into an
+ * {@link ESearchResponse}, from the tokens following the response name.
+ */
+final class SearchDecoder {
+
+	private enum State {
+		NUMBERS, MODSEQ, END, ESEARCH, CORRELATOR, CORRELATOR_VALUE, ITEM, VALUE, NESTED
+	}
+
+	private static final int INITIAL_RESULTS = 16;
+	private static final int[] NO_RESULTS = new int[0];
+
+	private final ParameterDecoder values;
+	private final ImapTokenizer tokenizer;
+	private State state;
+	private ImapKeyword keyword;
+	// SEARCH and SORT results, handed over to the response
+	private int[] results;
+	private int size;
+	private long modSeq;
+	private ESearchResponse esearch;
+	// typed ESEARCH return data whose value is read, null for others
+	private ImapKeyword key;
+	// whether the search correlator value read is the one of TAG
+	private boolean tagCorrelator;
+
+	SearchDecoder(ImapDecoderConfig config) {
+		values = new ParameterDecoder(false, config, true);
+		tokenizer = values.tokenizer();
+		reset();
+	}
+
+	/**
+	 * Starts a response named <code>keyword</code>, right after its name.
+	 */
+	void start(ImapKeyword keyword) {
+		reset();
+		this.keyword = keyword;
+		if (keyword == ImapKeyword.ESEARCH) {
+			esearch = new ESearchResponse();
+			state = State.ESEARCH;
+		} else {
+			state = State.NUMBERS;
+		}
+	}
+
+	/**
+	 * Returns the response once its line is read, or <code>null</code> when
+	 * more input is needed.
+	 */
+	ImapResponse decode(ChannelHandlerContext ctx, ByteBuf in) {
+		for (;;) {
+			if (state == State.NESTED) {
+				CommandParameter param = values.next(ctx, in);
+				if (param == null) {
+					if (values.getState() == ParameterDecoder.State.Ended) {
+						throw new CorruptedFrameException("ESEARCH return data not ended");
+					}
+					return null;
+				}
+				value(param);
+				continue;
+			}
+
+			Token token = tokenizer.nextToken(in);
+			if (token == null) {
+				return null;
+			}
+			switch (state) {
+			case NUMBERS:
+				if (token == Token.NUMBER) {
+					add(number());
+				} else if (token == Token.LIST_START) {
+					state = State.MODSEQ;
+				} else {
+					expect(token, Token.LINE_END);
+					return build();
+				}
+				break;
+			case MODSEQ:
+				if (token == Token.NUMBER) {
+					modSeq = tokenizer.number();
+				} else if (token != Token.ATOM) {
+					expect(token, Token.LIST_END);
+					state = State.END;
+				}
+				break;
+			case END:
+				expect(token, Token.LINE_END);
+				return build();
+			case ESEARCH:
+				if (token == Token.LIST_START) {
+					state = State.CORRELATOR;
+					break;
+				}
+				state = State.ITEM;
+				if (item(ctx, in, token)) {
+					return build();
+				}
+				break;
+			case CORRELATOR:
+				if (token == Token.LIST_END) {
+					state = State.ITEM;
+					break;
+				}
+				expect(token, Token.ATOM);
+				tagCorrelator = ImapKeyword.of(in, tokenizer.offset(), tokenizer.length()) == ImapKeyword.TAG;
+				state = State.CORRELATOR_VALUE;
+				break;
+			case CORRELATOR_VALUE:
+				// TAG is kept, other correlators (RFC 7377) are skipped
+				if (token != Token.QUOTED_STRING && token != Token.ATOM && token != Token.NUMBER) {
+					throw new CorruptedFrameException("search correlator without value, got " + token);
+				}
+				if (tagCorrelator) {
+					esearch.tag = in.toString(tokenizer.offset(), tokenizer.length(), CharsetUtil.US_ASCII);
+				}
+				state = State.CORRELATOR;
+				break;
+			case ITEM:
+				if (item(ctx, in, token)) {
+					return build();
+				}
+				break;
+			case VALUE:
+				value(ctx, in, token);
+				break;
+			default:
+				throw new IllegalStateException(state.name());
+			}
+		}
+	}
+
+	private long number() {
+		long value = tokenizer.number();
+		if (value > SequenceSetParameter.STAR) {
+			throw new CorruptedFrameException("not a 32 bit number: " + value);
+		}
+		return value;
+	}
+
+	private void add(long value) {
+		if (results == null) {
+			results = new int[INITIAL_RESULTS];
+		} else if (size == results.length) {
+			results = Arrays.copyOf(results, size * 2);
+		}
+		results[size++] = (int) value;
+	}
+
+	/**
+	 * Reads the name of an ESEARCH return data, returning whether the line
+	 * ended instead.
+	 */
+	private boolean item(ChannelHandlerContext ctx, ByteBuf in, Token token) {
+		if (token == Token.LINE_END) {
+			return true;
+		}
+		expect(token, Token.ATOM);
+		key = ImapKeyword.of(in, tokenizer.offset(), tokenizer.length());
+		if (key != null) {
+			switch (key) {
+			case UID:
+				esearch.uid = true;
+				key = null;
+				return false;
+			case MIN:
+			case MAX:
+			case COUNT:
+			case MODSEQ:
+			case ALL:
+				state = State.VALUE;
+				return false;
+			default:
+			}
+		}
+		key = null;
+		esearch.extensions.add(values.next(ctx, in, token));
+		state = State.VALUE;
+		return false;
+	}
+
+	private void value(ChannelHandlerContext ctx, ByteBuf in, Token token) {
+		if (key != null) {
+			if (token == Token.NUMBER) {
+				switch (key) {
+				case MIN:
+					esearch.min = number();
+					state = State.ITEM;
+					return;
+				case MAX:
+					esearch.max = number();
+					state = State.ITEM;
+					return;
+				case COUNT:
+					esearch.count = number();
+					state = State.ITEM;
+					return;
+				case MODSEQ:
+					esearch.modSeq = tokenizer.number();
+					state = State.ITEM;
+					return;
+				default:
+				}
+			}
+			if (key == ImapKeyword.ALL && (token == Token.NUMBER || token == Token.ATOM)) {
+				esearch.all = SequenceSetParameter.parse(in, tokenizer.offset(), tokenizer.length());
+				if (esearch.all != null) {
+					state = State.ITEM;
+					return;
+				}
+			}
+		}
+		if (token == Token.LIST_END || token == Token.LINE_END) {
+			throw new CorruptedFrameException("ESEARCH return data without value");
+		}
+		CommandParameter param = values.next(ctx, in, token);
+		if (param == null) {
+			state = State.NESTED;
+		} else {
+			value(param);
+		}
+	}
+
+	private void value(CommandParameter param) {
+		// a typed return data with an unexpected value is kept as is
+		if (key != null) {
+			esearch.extensions.add(new AtomParameter(key.asciiName()));
+		}
+		esearch.extensions.add(param);
+		key = null;
+		state = State.ITEM;
+	}
+
+	private ImapResponse build() {
+		if (esearch != null) {
+			ESearchResponse ret = esearch;
+			esearch = null;
+			return ret;
+		}
+		SearchResponse ret = new SearchResponse(keyword, results != null ? results : NO_RESULTS, size, modSeq);
+		results = null;
+		size = 0;
+		return ret;
+	}
+
+	private static void expect(Token token, Token expected) {
+		if (token != expected) {
+			throw new CorruptedFrameException(expected + " expected, got " + token);
+		}
+	}
+
+	/**
+	 * Drops the response being decoded.
+	 */
+	void reset() {
+		if (esearch != null) {
+			esearch.release();
+			esearch = null;
+		}
+		values.reset();
+		// a partly filled array is reused by the next response
+		size = 0;
+		modSeq = -1;
+		key = null;
+		tagCorrelator = false;
+		keyword = null;
+		state = State.NUMBERS;
+	}
+}
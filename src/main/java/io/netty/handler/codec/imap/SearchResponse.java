@@ -0,0 +1,187 @@
+/*
+ * Copyright 2016 Laurent Belmonte <laurent.belmonte@gmail.com>
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.imap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+
+/**
+ * A <code>* SEARCH</code> or <code>* SORT</code> response decoded with
+ * {@link ImapDecoderConfig#typedSearch(boolean)}: its numbers are held in an
+ * int array, as unsigned values, rather than as one parameter each.
+ */
+public class SearchResponse extends ImapResponse.AbstractImapResponse {
+
+	private final ImapKeyword keyword;
+	private final int[] results;
+	private final int size;
+	private final long modSeq;
+
+	/**
+	 * @param results
+	 *            the numbers, read as unsigned, of which only the first
+	 *            <code>size</code> are used; the array is not copied
+	 * @param modSeq
+	 *            the highest mod-sequence of the results (RFC 7162), or -1
+	 */
+	public SearchResponse(ImapKeyword keyword, int[] results, int size, long modSeq) {
+		if (keyword != ImapKeyword.SEARCH && keyword != ImapKeyword.SORT) {
+			throw new IllegalArgumentException("keyword: " + keyword);
+		}
+		this.keyword = keyword;
+		this.results = results;
+		this.size = size;
+		this.modSeq = modSeq;
+	}
+
+	/**
+	 * {@link ImapKeyword#SEARCH} or {@link ImapKeyword#SORT}.
+	 */
+	public ImapKeyword getKeyword() {
+		return keyword;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * The result at <code>index</code>, in the order sent.
+	 */
+	public long get(int index) {
+		if (index >= size) {
+			throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+		}
+		return results[index] & 0xFFFFFFFFL;
+	}
+
+	/**
+	 * The results as unsigned ints, in a new array.
+	 */
+	public int[] toArray() {
+		return Arrays.copyOf(results, size);
+	}
+
+	/**
+	 * The results as a compressed set, which loses the order of a SORT.
+	 */
+	public SequenceSetParameter toSequenceSet() {
+		return size == 0 ? null : SequenceSetParameter.of(results, size);
+	}
+
+	/**
+	 * The MODSEQ, or -1 when not sent.
+	 */
+	public long getModSeq() {
+		return modSeq;
+	}
+
+	@Override
+	public boolean tagged() {
+		return false;
+	}
+
+	/**
+	 * The results as generic parameters, one per number, built on each call.
+	 */
+	@Override
+	public List<CommandParameter> getParameters() {
+		List<CommandParameter> parameters = new ArrayList<>(size + 1);
+		for (int i = 0; i < size; i++) {
+			parameters.add(ParameterDecoder.numberParameter(get(i)));
+		}
+		if (modSeq >= 0) {
+			parameters.add(new ListParameter().add(new AtomParameter(ImapKeyword.MODSEQ.asciiName()))
+					.add(ParameterDecoder.numberParameter(modSeq)));
+		}
+		return parameters;
+	}
+
+	@Override
+	public SearchResponse retainedDuplicate() {
+		return new SearchResponse(keyword, results, size, modSeq);
+	}
+
+	@Override
+	public ImapResponse touch(Object hint) {
+		return this;
+	}
+
+	@Override
+	protected void deallocate() {
+		// holds no buffer
+	}
+
+	@Override
+	public void write(ByteBuf buf) {
+		buf.writeByte('*');
+		buf.writeByte(' ');
+		ByteBufUtil.writeAscii(buf, keyword.toString());
+		for (int i = 0; i < size; i++) {
+			buf.writeByte(' ');
+			SequenceSetParameter.writeDigits(buf, get(i));
+		}
+		if (modSeq >= 0) {
+			ByteBufUtil.writeAscii(buf, " (MODSEQ ");
+			SequenceSetParameter.writeDigits(buf, modSeq);
+			buf.writeByte(')');
+		}
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + keyword.hashCode();
+		result = prime * result + (int) (modSeq ^ (modSeq >>> 32));
+		for (int i = 0; i < size; i++) {
+			result = prime * result + results[i];
+		}
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		SearchResponse other = (SearchResponse) obj;
+		if (keyword != other.keyword)
+			return false;
+		if (modSeq != other.modSeq)
+			return false;
+		if (size != other.size)
+			return false;
+		for (int i = 0; i < size; i++) {
+			if (results[i] != other.results[i])
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "SearchResponse [keyword=" + keyword + ", size=" + size + ", modSeq=" + modSeq + "]";
+	}
+
+}
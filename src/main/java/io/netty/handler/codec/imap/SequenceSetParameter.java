@@ -0,0 +1,365 @@
+/*
+ * Copyright 2016 Laurent Belmonte <laurent.belmonte@gmail.com>
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.imap;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.AsciiString;
+import io.netty.util.CharsetUtil;
+
+/**
+ * A sequence set such as <code>1:500,502,600:*</code>, held as sorted,
+ * merged ranges of unsigned 32 bit numbers. <code>*</code> is held as
+ * {@link #STAR}, the largest value, and written back as <code>*</code>:
+ * <code>n:*</code> therefore does not match the last message when
+ * <code>n</code> is larger than its number, as RFC 3501 would.
+ */
+public class SequenceSetParameter implements CommandParameter {
+
+	/**
+	 * The value of <code>*</code>.
+	 */
+	public static final long STAR = 0xFFFFFFFFL;
+
+	// range bounds as unsigned ints, start and end of each range in turn
+	private final int[] ranges;
+
+	private SequenceSetParameter(int[] ranges) {
+		this.ranges = ranges;
+	}
+
+	/**
+	 * Parses <code>length</code> bytes at <code>index</code>, returning
+	 * <code>null</code> when they are not a sequence set.
+	 */
+	public static SequenceSetParameter parse(ByteBuf buf, int index, int length) {
+		if (length == 0) {
+			return null;
+		}
+		int[] ranges = new int[8];
+		int count = 0;
+		boolean sorted = true;
+		int end = index + length;
+		int pos = index;
+		while (pos < end) {
+			long start = -1;
+			long stop = -1;
+			for (int bound = 0; bound < 2; bound++) {
+				long value;
+				if (buf.getByte(pos) == '*') {
+					value = STAR;
+					pos++;
+				} else {
+					value = 0;
+					int digits = pos;
+					for (; pos < end; pos++) {
+						int digit = buf.getByte(pos) - '0';
+						if (digit < 0 || digit > 9) {
+							break;
+						}
+						value = value * 10 + digit;
+						if (value > STAR) {
+							return null;
+						}
+					}
+					if (pos == digits || value == 0) {
+						return null;
+					}
+				}
+				if (bound == 0) {
+					start = value;
+					stop = value;
+					if (pos < end && buf.getByte(pos) == ':' && pos + 1 < end) {
+						pos++;
+						continue;
+					}
+				} else {
+					stop = value;
+				}
+				break;
+			}
+			if (pos < end && (buf.getByte(pos) != ',' || ++pos == end)) {
+				return null;
+			}
+
+			if (start > stop) {
+				long swap = start;
+				start = stop;
+				stop = swap;
+			}
+			if (count == ranges.length) {
+				ranges = Arrays.copyOf(ranges, count * 2);
+			}
+			if (count > 0 && Integer.compareUnsigned(ranges[count - 1], (int) start) >= 0) {
+				sorted = false;
+			}
+			ranges[count++] = (int) start;
+			ranges[count++] = (int) stop;
+		}
+		return new SequenceSetParameter(normalize(ranges, count, sorted));
+	}
+
+	public static SequenceSetParameter parse(CharSequence value) {
+		AsciiString ascii = AsciiString.of(value);
+		return parse(Unpooled.wrappedBuffer(ascii.array(), ascii.arrayOffset(), ascii.length()), 0, ascii.length());
+	}
+
+	/**
+	 * The set of <code>values</code>, read as unsigned numbers and
+	 * compressed into ranges.
+	 */
+	public static SequenceSetParameter of(int... values) {
+		return of(values, values.length);
+	}
+
+	/**
+	 * The set of the first <code>length</code> <code>values</code>.
+	 */
+	public static SequenceSetParameter of(int[] values, int length) {
+		if (length == 0) {
+			throw new IllegalArgumentException("empty sequence set");
+		}
+		int[] sorted = Arrays.copyOf(values, length);
+		// sorts as unsigned numbers
+		for (int i = 0; i < sorted.length; i++) {
+			sorted[i] ^= Integer.MIN_VALUE;
+		}
+		Arrays.sort(sorted);
+		int[] ranges = new int[8];
+		int count = 0;
+		for (int i = 0; i < sorted.length; i++) {
+			int value = sorted[i] ^ Integer.MIN_VALUE;
+			if (value == 0) {
+				throw new IllegalArgumentException("0 is not a valid sequence number");
+			}
+			if (count > 0 && (value == ranges[count - 1] || value == ranges[count - 1] + 1)) {
+				ranges[count - 1] = value;
+				continue;
+			}
+			if (count == ranges.length) {
+				ranges = Arrays.copyOf(ranges, count * 2);
+			}
+			ranges[count++] = value;
+			ranges[count++] = value;
+		}
+		return new SequenceSetParameter(Arrays.copyOf(ranges, count));
+	}
+
+	/**
+	 * The set of the bits set in <code>bits</code>.
+	 */
+	public static SequenceSetParameter of(BitSet bits) {
+		if (bits.isEmpty()) {
+			throw new IllegalArgumentException("empty sequence set");
+		} else if (bits.get(0)) {
+			throw new IllegalArgumentException("0 is not a valid sequence number");
+		}
+		int[] ranges = new int[8];
+		int count = 0;
+		for (int start = bits.nextSetBit(0); start >= 0; start = bits.nextSetBit(start)) {
+			int stop = bits.nextClearBit(start);
+			if (count == ranges.length) {
+				ranges = Arrays.copyOf(ranges, count * 2);
+			}
+			ranges[count++] = start;
+			ranges[count++] = stop - 1;
+			start = stop;
+		}
+		return new SequenceSetParameter(Arrays.copyOf(ranges, count));
+	}
+
+	private static int[] normalize(int[] ranges, int count, boolean sorted) {
+		if (!sorted) {
+			long[] keys = new long[count / 2];
+			for (int i = 0; i < keys.length; i++) {
+				// the flipped sign bit of the start sorts it as unsigned
+				keys[i] = ((long) (ranges[i * 2] ^ Integer.MIN_VALUE) << 32) | (ranges[i * 2 + 1] & 0xFFFFFFFFL);
+			}
+			Arrays.sort(keys);
+			for (int i = 0; i < keys.length; i++) {
+				ranges[i * 2] = (int) (keys[i] >>> 32) ^ Integer.MIN_VALUE;
+				ranges[i * 2 + 1] = (int) keys[i];
+			}
+		}
+		int merged = 0;
+		for (int i = 0; i < count; i += 2) {
+			long start = ranges[i] & 0xFFFFFFFFL;
+			long stop = ranges[i + 1] & 0xFFFFFFFFL;
+			if (merged > 0 && start <= (ranges[merged - 1] & 0xFFFFFFFFL) + 1) {
+				if (stop > (ranges[merged - 1] & 0xFFFFFFFFL)) {
+					ranges[merged - 1] = (int) stop;
+				}
+			} else {
+				ranges[merged++] = (int) start;
+				ranges[merged++] = (int) stop;
+			}
+		}
+		return merged == ranges.length ? ranges : Arrays.copyOf(ranges, merged);
+	}
+
+	public int rangeCount() {
+		return ranges.length / 2;
+	}
+
+	public long rangeStart(int range) {
+		return ranges[range * 2] & 0xFFFFFFFFL;
+	}
+
+	public long rangeEnd(int range) {
+		return ranges[range * 2 + 1] & 0xFFFFFFFFL;
+	}
+
+	/**
+	 * The number of values in the set, <code>*</code> counting as
+	 * {@link #STAR}.
+	 */
+	public long size() {
+		long size = 0;
+		for (int i = 0; i < rangeCount(); i++) {
+			size += rangeEnd(i) - rangeStart(i) + 1;
+		}
+		return size;
+	}
+
+	public boolean contains(long value) {
+		int low = 0;
+		int high = rangeCount() - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (value < rangeStart(mid)) {
+				high = mid - 1;
+			} else if (value > rangeEnd(mid)) {
+				low = mid + 1;
+			} else {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * The values of the set in ascending order.
+	 */
+	public PrimitiveIterator.OfLong iterator() {
+		return new PrimitiveIterator.OfLong() {
+
+			private int range;
+			private long next = rangeStart(0);
+
+			@Override
+			public boolean hasNext() {
+				return range < rangeCount();
+			}
+
+			@Override
+			public long nextLong() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				long value = next;
+				if (value == rangeEnd(range)) {
+					if (++range < rangeCount()) {
+						next = rangeStart(range);
+					}
+				} else {
+					next++;
+				}
+				return value;
+			}
+		};
+	}
+
+	@Override
+	public boolean isPartial() {
+		return false;
+	}
+
+	@Override
+	public void write(ByteBuf buf) {
+		for (int i = 0; i < rangeCount(); i++) {
+			if (i > 0) {
+				buf.writeByte(',');
+			}
+			writeNumber(buf, rangeStart(i));
+			if (rangeEnd(i) != rangeStart(i)) {
+				buf.writeByte(':');
+				writeNumber(buf, rangeEnd(i));
+			}
+		}
+	}
+
+	private static void writeNumber(ByteBuf buf, long value) {
+		if (value == STAR) {
+			buf.writeByte('*');
+		} else {
+			writeDigits(buf, value);
+		}
+	}
+
+	/**
+	 * Writes a positive number without going through a {@link String}.
+	 */
+	static void writeDigits(ByteBuf buf, long value) {
+		int digits = 1;
+		for (long v = value; v >= 10; v /= 10) {
+			digits++;
+		}
+		int index = buf.writerIndex();
+		buf.ensureWritable(digits);
+		for (int i = digits - 1; i >= 0; i--) {
+			buf.setByte(index + i, (int) ('0' + value % 10));
+			value /= 10;
+		}
+		buf.writerIndex(index + digits);
+	}
+
+	@Override
+	public String toString() {
+		ByteBuf buf = Unpooled.buffer();
+		write(buf);
+		String ret = buf.toString(CharsetUtil.US_ASCII);
+		buf.release();
+		return ret;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + Arrays.hashCode(ranges);
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		SequenceSetParameter other = (SequenceSetParameter) obj;
+		if (!Arrays.equals(ranges, other.ranges))
+			return false;
+		return true;
+	}
+
+}
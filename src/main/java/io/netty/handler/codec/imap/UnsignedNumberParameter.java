@@ -0,0 +1,81 @@
+/*
+ * Copyright 2016 Laurent Belmonte <laurent.belmonte@gmail.com>
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.imap;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+
+/**
+ * A number between 2^31 and 2^32 - 1, such as a large UID or UIDVALIDITY.
+ */
+public class UnsignedNumberParameter implements NumericParameter {
+
+	private final int value;
+
+	public UnsignedNumberParameter(long value) {
+		if (value < 0 || value > 0xFFFFFFFFL) {
+			throw new IllegalArgumentException("value: " + value + " (expected: 0-4294967295)");
+		}
+		this.value = (int) value;
+	}
+
+	@Override
+	public boolean isPartial() {
+		return false;
+	}
+
+	public long getValue() {
+		return Integer.toUnsignedLong(value);
+	}
+
+	@Override
+	public long longValue() {
+		return getValue();
+	}
+
+	@Override
+	public String toString() {
+		return Integer.toUnsignedString(value);
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + value;
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		UnsignedNumberParameter other = (UnsignedNumberParameter) obj;
+		if (value != other.value)
+			return false;
+		return true;
+	}
+
+	@Override
+	public void write(ByteBuf buf) {
+		ByteBufUtil.writeAscii(buf, Integer.toUnsignedString(value));
+	}
+
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2016 Laurent Belmonte <laurent.belmonte@gmail.com>
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.imap;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+public class ByteScannerTest {
+
+	@Test
+	public void testEveryPosition() {
+		for (ByteBuf buf : new ByteBuf[] { Unpooled.buffer(40), Unpooled.directBuffer(40) }) {
+			for (int at = 0; at < 24; at++) {
+				buf.clear();
+				for (int i = 0; i < 24; i++) {
+					buf.writeByte(i == at ? '"' : 'a');
+				}
+				for (int from = 0; from < 24; from++) {
+					int expected = from <= at ? at : -1;
+					assertThat(ByteScanner.indexOf(buf, from, 24, (byte) '"', (byte) '\r', (byte) '\n'),
+							equalTo(expected));
+					assertThat(ByteScanner.indexOf(buf, from, at, (byte) '"'), equalTo(-1));
+				}
+			}
+			buf.release();
+		}
+	}
+
+	@Test
+	public void testEveryByteValue() {
+		ByteBuf buf = Unpooled.buffer(16);
+		for (int filler = 0; filler < 256; filler++) {
+			for (int target = 0; target < 256; target++) {
+				buf.clear();
+				// fillers around the match catch false positives from borrows
+				buf.writeByte(filler).writeByte(filler).writeByte(target ^ 1).writeByte(target);
+				buf.writeByte(target + 1).writeByte(filler).writeByte(filler).writeByte(filler);
+				int expected = filler == target ? 0 : 3;
+				assertThat(ByteScanner.indexOf(buf, 0, 8, (byte) target), equalTo(expected));
+			}
+		}
+	}
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2016 Laurent Belmonte <laurent.belmonte@gmail.com>
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.imap;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.nio.channels.ClosedChannelException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Test;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.imap.ImapClientHandler.Result;
+
+public class ImapClientHandlerTest {
+
+	@Test
+	public void testPipelinedCommands() throws Exception {
+		ImapClientHandler handler = new ImapClientHandler("A", Integer.MAX_VALUE);
+		EmbeddedChannel channel = new EmbeddedChannel(new ImapResponseDecoder(), new ImapCommandEncoder(), handler);
+
+		CompletableFuture<Result> select = handler.send("SELECT",
+				Collections.<CommandParameter> singletonList(new AtomParameter("INBOX")));
+		CompletableFuture<Result> noop = handler.send("NOOP", Collections.<CommandParameter> emptyList());
+		assertThat(written(channel), equalTo("A1 SELECT INBOX\r\nA2 NOOP\r\n"));
+		assertThat(handler.inFlight(), equalTo(2));
+
+		channel.writeInbound(buffer("* 3 EXISTS\r\nA1 OK [READ-WRITE] done\r\n* 4 EXISTS\r\nA2 NO failed\r\n"));
+		Result result = select.get();
+		assertThat(result.getTag(), equalTo("A1"));
+		assertThat(result.isOk(), equalTo(true));
+		assertThat(result.getResponses().size(), equalTo(1));
+		assertThat(result.getResponses().get(0), instanceOf(ImapResponse.MessageStatusResponse.class));
+		result.release();
+
+		result = noop.get();
+		assertThat(result.getTag(), equalTo("A2"));
+		assertThat(result.isOk(), equalTo(false));
+		assertThat(result.getStatus(), instanceOf(ImapResponse.No.class));
+		assertThat(result.getResponses().size(), equalTo(1));
+		result.release();
+
+		assertThat(handler.inFlight(), equalTo(0));
+		channel.writeInbound(buffer("* 5 EXISTS\r\n"));
+		ImapResponse unsolicited = channel.readInbound();
+		assertThat(unsolicited, instanceOf(ImapResponse.MessageStatusResponse.class));
+		unsolicited.release();
+		assertThat(channel.finish(), equalTo(false));
+	}
+
+	@Test
+	public void testMaxInFlight() throws Exception {
+		ImapClientHandler handler = new ImapClientHandler("B", 1);
+		EmbeddedChannel channel = new EmbeddedChannel(new ImapResponseDecoder(), new ImapCommandEncoder(), handler);
+
+		List<ImapResponse> received = new ArrayList<>();
+		CompletableFuture<Result> search = handler.send("UID",
+				Arrays.<CommandParameter> asList(new AtomParameter("SEARCH"), new AtomParameter("ALL")),
+				received::add);
+		CompletableFuture<Result> noop = handler.send("NOOP", Collections.<CommandParameter> emptyList());
+		assertThat(written(channel), equalTo("B1 UID SEARCH ALL\r\n"));
+
+		channel.writeInbound(buffer("* SEARCH 2 4\r\nB1 OK done\r\n"));
+		Result result = search.get();
+		assertThat(result.getResponses().isEmpty(), equalTo(true));
+		assertThat(received.size(), equalTo(1));
+		received.get(0).release();
+		result.release();
+		assertThat(written(channel), equalTo("B2 NOOP\r\n"));
+		assertThat(noop.isDone(), equalTo(false));
+
+		channel.close();
+		assertThat(noop.isCompletedExceptionally(), equalTo(true));
+		try {
+			noop.get();
+		} catch (ExecutionException e) {
+			assertThat(e.getCause(), instanceOf(ClosedChannelException.class));
+		}
+		assertThat(channel.readInbound(), nullValue());
+	}
+
+	@Test
+	public void testCancelledCommand() throws Exception {
+		ImapClientHandler handler = new ImapClientHandler();
+		EmbeddedChannel channel = new EmbeddedChannel(
+				new ImapResponseDecoder(new ImapDecoderConfig().zeroCopyLiterals(true)), new ImapCommandEncoder(),
+				handler);
+
+		CompletableFuture<Result> fetch = handler.send("FETCH",
+				Arrays.<CommandParameter> asList(new AtomParameter("1"), new AtomParameter("BODY[]")));
+		written(channel);
+		fetch.cancel(false);
+
+		ByteBuf body = buffer("* 1 FETCH (BODY[] {5}\r\nhello)\r\nC1 OK done\r\n");
+		channel.writeInbound(body.retain());
+		assertThat(handler.inFlight(), equalTo(0));
+		assertThat(body.refCnt(), equalTo(1));
+		body.release();
+		assertThat(channel.finish(), equalTo(false));
+	}
+
+	@Test
+	public void testESearchCorrelator() throws Exception {
+		ImapClientHandler handler = new ImapClientHandler();
+		EmbeddedChannel channel = new EmbeddedChannel(
+				new ImapResponseDecoder(new ImapDecoderConfig().typedSearch(true)), new ImapCommandEncoder(), handler);
+
+		CompletableFuture<Result> noop = handler.send("NOOP", Collections.<CommandParameter> emptyList());
+		CompletableFuture<Result> search = handler.send("SEARCH",
+				Arrays.<CommandParameter> asList(new AtomParameter("RETURN"), new AtomParameter("()"),
+						new AtomParameter("ALL")));
+		assertThat(written(channel), equalTo("C1 NOOP\r\nC2 SEARCH RETURN () ALL\r\n"));
+
+		channel.writeInbound(buffer("* ESEARCH (TAG \"C2\") ALL 1:3\r\nC1 OK done\r\nC2 OK done\r\n"));
+		Result result = noop.get();
+		assertThat(result.getResponses().isEmpty(), equalTo(true));
+		result.release();
+		result = search.get();
+		assertThat(result.getResponses().size(), equalTo(1));
+		assertThat(((ESearchResponse) result.getResponses().get(0)).getAll().size(), equalTo(3L));
+		result.release();
+		assertThat(channel.finish(), equalTo(false));
+	}
+
+	private static String written(EmbeddedChannel channel) {
+		StringBuilder sb = new StringBuilder();
+		ByteBuf buf;
+		while ((buf = channel.readOutbound()) != null) {
+			sb.append(buf.toString(StandardCharsets.US_ASCII));
+			buf.release();
+		}
+		return sb.toString();
+	}
+
+	private static ByteBuf buffer(String value) {
+		return Unpooled.copiedBuffer(value, StandardCharsets.US_ASCII);
+	}
+}
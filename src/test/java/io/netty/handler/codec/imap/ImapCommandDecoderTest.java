@@ -15,11 +15,17 @@
  */
 package io.netty.handler.codec.imap;
 
+import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
+import java.io.File;
+import java.io.IOException;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.util.Arrays;
 
 import org.hamcrest.Matcher;
@@ -29,7 +35,10 @@ import org.junit.Test;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.TooLongFrameException;
 import io.netty.handler.codec.imap.matcher.ImapCommandMatcher;
+import io.netty.util.AsciiString;
 
 public class ImapCommandDecoderTest {
 
@@ -55,6 +64,31 @@ public class ImapCommandDecoderTest {
 		assertThat(testCommand("P\r\n"), match("ZZ01", "BLURYBLOOP"));
 	}
 
+	@Test
+	public void testCommandSplitOnEveryByte() {
+		assertThat(testFragmentedCommand("ZZ01 BLURYBLOOP ABC \"DCD\" (12 NIL) {3}\r\nabc OOO\r\n"),
+				match("ZZ01", "BLURYBLOOP", new AtomParameter("ABC"), new QuotedStringParameter("DCD"),
+						new OpenListParameter(), new NumberParameter(12), new NilParameter(),
+						new CloseListParameter(),
+						new LiteralParameter(Unpooled.copiedBuffer("a", Charset.defaultCharset()), 3, false),
+						new ChunkParameter(Unpooled.copiedBuffer("b", Charset.defaultCharset()), false),
+						new ChunkParameter(Unpooled.copiedBuffer("c", Charset.defaultCharset()), true),
+						new AtomParameter("OOO")));
+		assertThat(testFragmentedCommand("ZZ02 NOOP\r\n"), match("ZZ02", "NOOP"));
+	}
+
+	@Test
+	public void testInvalidLiteralLength() {
+		for (String length : new String[] { "{}", "{+3}", "{3+3}", "{3a}", "{2147483648}" }) {
+			try {
+				testCommand("ZZ01 APPEND INBOX " + length + "\r\nabc\r\n");
+				fail(length);
+			} catch (CorruptedFrameException | TooLongFrameException expected) {
+			}
+			channel = createDecoderChannel();
+		}
+	}
+
 	@Test
 	public void testCommandAndQuotedStringParam() {
 		assertThat(testCommand("ZZ01 BLURYBLOOP \"123\"\r\n"), match("ZZ01", "BLURYBLOOP", "\"123\""));
@@ -67,16 +101,76 @@ public class ImapCommandDecoderTest {
 		assertThat(testCommand("ZZ01 BLURYBLOOP ABC DCD\r\n"), match("ZZ01", "BLURYBLOOP", "ABC", "DCD"));
 	}
 
+	@Test
+	public void testCommandKeyword() {
+		ImapCommand command = testCommand("ZZ01 FETCH 1 FLAGS\r\n");
+		assertThat(command.getKeyword(), equalTo(ImapKeyword.FETCH));
+		assertThat(command.getCommand() == ImapKeyword.FETCH.toString(), equalTo(true));
+
+		command = testCommand("ZZ02 uid fetch 1 FLAGS\r\n");
+		assertThat(command.getCommand(), equalTo("uid"));
+		assertThat(command.getKeyword(), equalTo(ImapKeyword.UID));
+
+		assertThat(testCommand("ZZ03 XBLURYBLOOP\r\n").getKeyword(), nullValue());
+
+		for (ImapKeyword keyword : ImapKeyword.values()) {
+			ByteBuf buf = Unpooled.copiedBuffer(keyword.toString().toLowerCase(), Charset.defaultCharset());
+			assertThat(ImapKeyword.of(buf, 0, buf.readableBytes()), equalTo(keyword));
+			buf.release();
+		}
+	}
+
+	@Test
+	public void testAtomAndQuotedStringRoundTrip() {
+		ImapCommand command = testCommand("ZZ01 BLURYBLOOP ABC \"d e f\"\r\n");
+		assertThat(((AtomParameter) command.getParameters().get(0)).getValue(), equalTo(AsciiString.of("ABC")));
+		assertThat(((QuotedStringParameter) command.getParameters().get(1)).getValue(),
+				equalTo(AsciiString.of("d e f")));
+
+		ByteBuf buf = Unpooled.buffer();
+		CommandParameter.write(buf, command.getParameters());
+		assertThat(buf.toString(Charset.defaultCharset()), equalTo(" ABC \"d e f\""));
+		buf.release();
+	}
+
 	@Test
 	public void testCommandAndNumberParam() {
 		assertThat(testCommand("ZZ01 BLURYBLOOP 12 34567890\r\n"),
 				match("ZZ01", "BLURYBLOOP", new NumberParameter(12), new NumberParameter(34567890)));
 	}
 
+	@Test
+	public void testCommandAndLargeNumberParam() {
+		assertThat(testCommand("ZZ01 UID FETCH 2147483647 2147483648 4294967295 4294967296 92233720368547758070\r\n"),
+				match("ZZ01", "UID", new AtomParameter("FETCH"), new NumberParameter(2147483647),
+						new UnsignedNumberParameter(2147483648L), new UnsignedNumberParameter(4294967295L),
+						new ModSeqParameter(4294967296L), new AtomParameter("92233720368547758070")));
+		assertThat(testCommand("ZZ01 BLURYBLOOP 12a -5 007\r\n"), match("ZZ01", "BLURYBLOOP",
+				new AtomParameter("12a"), new AtomParameter("-5"), new NumberParameter(7)));
+	}
+
+	@Test
+	public void testCommandAndSequenceSetParam() {
+		channel = new EmbeddedChannel(new ImapCommandDecoder(new ImapDecoderConfig().sequenceSets(true)));
+
+		assertThat(testFragmentedCommand("A1 UID FETCH 1:500,502,600:* FLAGS\r\n"),
+				match("A1", "UID", new AtomParameter("FETCH"), SequenceSetParameter.parse("1:500,502,600:*"),
+						new AtomParameter("FLAGS")));
+		assertThat(testCommand("A2 FETCH 7 FLAGS\r\n"),
+				match("A2", "FETCH", new NumberParameter(7), new AtomParameter("FLAGS")));
+		assertThat(testCommand("A3 LIST \"\" *\r\n"),
+				match("A3", "LIST", new QuotedStringParameter(""), new AtomParameter("*")));
+	}
+
 	@Test
 	public void testCommandAndNilParam() {
 		assertThat(testCommand("ZZ01 BLURYBLOOP NIL NUL\r\n"),
 				match("ZZ01", "BLURYBLOOP", new NilParameter(), new AtomParameter("NUL")));
+
+		ImapCommand command = testCommand("ZZ01 BLURYBLOOP (NIL NIL)\r\n");
+		assertThat(command.getParameters().get(0) == OpenListParameter.INSTANCE, equalTo(true));
+		assertThat(command.getParameters().get(1) == NilParameter.INSTANCE, equalTo(true));
+		assertThat(command.getParameters().get(3) == CloseListParameter.INSTANCE, equalTo(true));
 	}
 
 	@Test
@@ -112,6 +206,108 @@ public class ImapCommandDecoderTest {
 						new QuotedStringParameter("OK2")));
 	}
 
+	@Test
+	public void testCommandAndLiteralParamZeroCopy() {
+		channel = new EmbeddedChannel(new ImapCommandDecoder(new ImapDecoderConfig().zeroCopyLiterals(true)));
+		testCommand("ZZ01 BLURYBLOOP {5+}\r\n12");
+		ImapCommand r = testCommand("355 {2+}\r\nOK \"OK2\"\r\n");
+		assertThat(r,
+
+				match("ZZ01", "BLURYBLOOP",
+						new LiteralParameter(Unpooled.copiedBuffer("12", Charset.defaultCharset()), 5, true),
+						new ChunkParameter(Unpooled.copiedBuffer("355", Charset.defaultCharset()), true),
+						new LiteralParameter(Unpooled.copiedBuffer("OK", Charset.defaultCharset()), 2, true),
+						new QuotedStringParameter("OK2")));
+
+		LiteralParameter literal = (LiteralParameter) r.getParameters().get(0);
+		assertThat(literal.content().unwrap(), notNullValue());
+	}
+
+	@Test
+	public void testSpooledLiteral() throws IOException {
+		File directory = Files.createTempDirectory("imap").toFile();
+		try {
+			channel = new EmbeddedChannel(new ImapCommandDecoder(new ImapDecoderConfig().spoolLiterals(8, directory)));
+			assertThat(testCommand("A1 APPEND INBOX {3}\r\nabc\r\n"), match("A1", "APPEND", new AtomParameter("INBOX"),
+					new LiteralParameter(Unpooled.copiedBuffer("abc", Charset.defaultCharset()), 3, false)));
+
+			assertThat(testCommand("A2 APPEND INBOX {20}\r\n0123456789"), nullValue());
+			assertThat(directory.list().length, equalTo(1));
+			ImapCommand command = testCommand("abcdefghij FLAGS\r\n");
+			assertThat(command, match("A2", "APPEND", new AtomParameter("INBOX"),
+					new LiteralParameter(Unpooled.copiedBuffer("0123456789abcdefghij", Charset.defaultCharset()), 20,
+							false),
+					new AtomParameter("FLAGS")));
+			assertThat(((LiteralParameter) command.getParameters().get(1)).content().isDirect(), equalTo(true));
+			assertThat(directory.list().length, equalTo(0));
+
+			assertThat(testCommand("A3 APPEND INBOX {20}\r\n0123456789"), nullValue());
+			assertThat(directory.list().length, equalTo(1));
+			channel.finishAndReleaseAll();
+			assertThat(directory.list().length, equalTo(0));
+		} finally {
+			directory.delete();
+		}
+	}
+
+	@Test
+	public void testCommandAndEmptyLiteralParam() {
+		assertThat(testCommand("ZZ01 BLURYBLOOP {0}\r\n OK\r\n"), match("ZZ01", "BLURYBLOOP",
+				new LiteralParameter(Unpooled.EMPTY_BUFFER, 0, false), new AtomParameter("OK")));
+	}
+
+	@Test
+	public void testStreamedLiteral() {
+		channel = new EmbeddedChannel(new ImapCommandDecoder(new ImapDecoderConfig().streamLiterals(true)));
+
+		assertThat(channel.writeInbound(Unpooled.copiedBuffer("A1 APPEND INBOX (\\Seen) {10}\r\n0123",
+				Charset.defaultCharset())), equalTo(true));
+		ImapCommand head = channel.readInbound();
+		assertThat(head,
+				match("A1", "APPEND", new AtomParameter("INBOX"), new OpenListParameter(),
+						new AtomParameter("\\Seen"), new CloseListParameter(),
+						new LiteralParameter(Unpooled.EMPTY_BUFFER, 10, false)));
+		assertThat(head.partial(), equalTo(true));
+		ImapLiteralContent content = channel.readInbound();
+		assertThat(content.content().toString(Charset.defaultCharset()), equalTo("0123"));
+		content.release();
+		assertThat(channel.readInbound(), nullValue());
+
+		assertThat(channel.writeInbound(Unpooled.copiedBuffer("456789\r\n", Charset.defaultCharset())),
+				equalTo(true));
+		LastImapLiteralContent last = channel.readInbound();
+		assertThat(last.content().toString(Charset.defaultCharset()), equalTo("456789"));
+		assertThat(last.trailingParameters().isEmpty(), equalTo(true));
+		assertThat(last.partial(), equalTo(false));
+		last.release();
+		assertThat(channel.readInbound(), nullValue());
+	}
+
+	@Test
+	public void testStreamedLiterals() {
+		channel = new EmbeddedChannel(new ImapCommandDecoder(new ImapDecoderConfig().streamLiterals(true)));
+
+		assertThat(channel.writeInbound(Unpooled.copiedBuffer("A2 LOGIN {4}\r\nuser {8}\r\npassword\r\n",
+				Charset.defaultCharset())), equalTo(true));
+		assertThat(channel.readInbound(),
+				match("A2", "LOGIN", new LiteralParameter(Unpooled.EMPTY_BUFFER, 4, false)));
+
+		LastImapLiteralContent user = channel.readInbound();
+		assertThat(user.content().toString(Charset.defaultCharset()), equalTo("user"));
+		assertThat(user.trailingParameters(),
+				equalTo(Arrays.asList(new LiteralParameter(Unpooled.EMPTY_BUFFER, 8, false))));
+		assertThat(user.partial(), equalTo(true));
+		user.release();
+
+		LastImapLiteralContent password = channel.readInbound();
+		assertThat(password.content().toString(Charset.defaultCharset()), equalTo("password"));
+		assertThat(password.partial(), equalTo(false));
+		password.release();
+
+		assertThat(testCommand("A3 LOGIN {0}\r\n \"pw\"\r\n"), match("A3", "LOGIN",
+				new LiteralParameter(Unpooled.EMPTY_BUFFER, 0, false), new QuotedStringParameter("pw")));
+	}
+
 	@Test
 	public void testCommandAndListParam() {
 
@@ -157,6 +353,13 @@ public class ImapCommandDecoderTest {
 		return new ImapCommandMatcher(tag, command, parameters);
 	}
 
+	private ImapCommand testFragmentedCommand(String command) {
+		for (int i = 0; i < command.length() - 1; i++) {
+			assertThat(testCommand(command.substring(i, i + 1)), nullValue());
+		}
+		return testCommand(command.substring(command.length() - 1));
+	}
+
 	private ImapCommand testCommand(String command) {
 
 		ByteBuf buffer = Unpooled.wrappedBuffer((command).getBytes());
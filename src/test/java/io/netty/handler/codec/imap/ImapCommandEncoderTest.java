@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016 Laurent Belmonte <laurent.belmonte@gmail.com>
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.imap;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+public class ImapCommandEncoderTest {
+
+	@Test
+	public void testCommand() {
+		EmbeddedChannel channel = new EmbeddedChannel(new ImapCommandEncoder());
+		channel.writeOutbound(new ImapCommand("A1", "SELECT", Arrays.asList(new AtomParameter("INBOX"))));
+		assertThat(readOutbound(channel), equalTo("A1 SELECT INBOX\r\n"));
+		assertThat(channel.finish(), equalTo(false));
+	}
+
+	@Test
+	public void testLiteralIsNotCopied() {
+		EmbeddedChannel channel = new EmbeddedChannel(new ImapCommandEncoder());
+		ByteBuf literal = Unpooled.wrappedBuffer(new byte[4096]);
+		channel.writeOutbound(new ImapCommand("A1", "APPEND",
+				Arrays.asList(new AtomParameter("INBOX"), new LiteralParameter(literal, 4096, false))));
+
+		ByteBuf head = channel.readOutbound();
+		assertThat(head.toString(Charset.defaultCharset()), equalTo("A1 APPEND INBOX {4096}\r\n"));
+		head.release();
+
+		ByteBuf content = channel.readOutbound();
+		assertThat(content.array() == literal.array(), equalTo(true));
+		assertThat(literal.readableBytes(), equalTo(4096));
+		// the command was released once encoded, the literal lives on in the output
+		assertThat(literal.refCnt(), equalTo(1));
+		content.release();
+		assertThat(literal.refCnt(), equalTo(0));
+
+		assertThat(readOutbound(channel), equalTo("\r\n"));
+		assertThat(channel.finish(), equalTo(false));
+	}
+
+	@Test
+	public void testStreamedLiteralsRoundTrip() {
+		char[] big = new char[1000];
+		Arrays.fill(big, 'x');
+		String command = "A1 BLURYBLOOP (BODY {1000}\r\n" + new String(big) + " ZZ {3}\r\nabc)\r\n";
+
+		EmbeddedChannel decoder = new EmbeddedChannel(
+				new ImapCommandDecoder(new ImapDecoderConfig().streamLiterals(true)));
+		decoder.writeInbound(Unpooled.copiedBuffer(command, Charset.defaultCharset()));
+
+		EmbeddedChannel encoder = new EmbeddedChannel(new ImapCommandEncoder());
+		Object msg;
+		while ((msg = decoder.readInbound()) != null) {
+			encoder.writeOutbound(msg);
+		}
+		assertThat(readOutbound(encoder), equalTo(command));
+		assertThat(decoder.finish(), equalTo(false));
+		assertThat(encoder.finish(), equalTo(false));
+	}
+
+	static String readOutbound(EmbeddedChannel channel) {
+		StringBuilder sb = new StringBuilder();
+		ByteBuf buf;
+		while ((buf = channel.readOutbound()) != null) {
+			sb.append(buf.toString(Charset.defaultCharset()));
+			buf.release();
+		}
+		return sb.toString();
+	}
+
+}
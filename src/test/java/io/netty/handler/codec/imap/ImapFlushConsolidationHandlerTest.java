@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016 Laurent Belmonte <laurent.belmonte@gmail.com>
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.imap;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+
+public class ImapFlushConsolidationHandlerTest {
+
+	@Test
+	public void testTaggedResponseFlushes() {
+		EmbeddedChannel channel = new EmbeddedChannel(new ImapResponseEncoder(), new ImapFlushConsolidationHandler());
+
+		channel.writeAndFlush(new ImapResponse.Ok("A1", null, "done"));
+		assertThat(ImapCommandEncoderTest.readOutbound(channel), equalTo("A1 OK done\r\n"));
+		assertThat(channel.finish(), equalTo(false));
+	}
+
+	@Test
+	public void testUntaggedFlushedAfterTask() {
+		EmbeddedChannel channel = new EmbeddedChannel(new ImapResponseEncoder(), new ImapFlushConsolidationHandler());
+
+		channel.writeAndFlush(fetch(3));
+		assertThat(ImapCommandEncoderTest.readOutbound(channel), equalTo(""));
+		channel.runPendingTasks();
+		assertThat(ImapCommandEncoderTest.readOutbound(channel), equalTo("* 3 FETCH (UID 3)\r\n"));
+		assertThat(channel.finish(), equalTo(false));
+	}
+
+	@Test
+	public void testFlushedAfterRead() {
+		EmbeddedChannel channel = new EmbeddedChannel(new ImapCommandEncoder(), new ImapFlushConsolidationHandler());
+
+		channel.pipeline().fireChannelRead(new Object());
+		channel.writeAndFlush(new ImapCommand("A1", "NOOP", Collections.<CommandParameter> emptyList()));
+		channel.writeAndFlush(new ImapCommand("A2", "NOOP", Collections.<CommandParameter> emptyList()));
+		channel.runPendingTasks();
+		assertThat(ImapCommandEncoderTest.readOutbound(channel), equalTo(""));
+
+		channel.pipeline().fireChannelReadComplete();
+		assertThat(ImapCommandEncoderTest.readOutbound(channel), equalTo("A1 NOOP\r\nA2 NOOP\r\n"));
+		channel.readInbound();
+		assertThat(channel.finish(), equalTo(false));
+	}
+
+	@Test
+	public void testExplicitFlushAfterFlushes() {
+		EmbeddedChannel channel = new EmbeddedChannel(new ImapResponseEncoder(),
+				new ImapFlushConsolidationHandler(2));
+
+		channel.pipeline().fireChannelRead(new Object());
+		channel.writeAndFlush(fetch(1));
+		assertThat(ImapCommandEncoderTest.readOutbound(channel), equalTo(""));
+		channel.writeAndFlush(fetch(2));
+		assertThat(ImapCommandEncoderTest.readOutbound(channel),
+				equalTo("* 1 FETCH (UID 1)\r\n* 2 FETCH (UID 2)\r\n"));
+		channel.readInbound();
+		assertThat(channel.finish(), equalTo(false));
+	}
+
+	private static ImapResponse fetch(int number) {
+		return new ImapResponse.MessageStatusResponse(number, "FETCH", Arrays.asList(OpenListParameter.INSTANCE,
+				new AtomParameter("UID"), new NumberParameter(number), CloseListParameter.INSTANCE));
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2016 Laurent Belmonte <laurent.belmonte@gmail.com>
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.imap;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.handler.codec.imap.matcher.ImapCommandMatcher;
+
+public class ImapLiteralAggregatorTest {
+
+	private static final ImapDecoderConfig STREAMING = new ImapDecoderConfig().streamLiterals(true);
+
+	@Test
+	public void testStreamedLiteral() {
+		EmbeddedChannel channel = new EmbeddedChannel(new ImapCommandDecoder(STREAMING),
+				new ImapLiteralAggregator(1024));
+
+		assertThat(channel.writeInbound(buffer("A1 APPEND INBOX (\\Seen) {10}\r\n0123")), equalTo(false));
+		assertThat(channel.writeInbound(buffer("456")), equalTo(false));
+		assertThat(channel.writeInbound(buffer("789\r\n")), equalTo(true));
+
+		ImapCommand cmd = channel.readInbound();
+		assertThat(cmd, new ImapCommandMatcher("A1", "APPEND",
+				new CommandParameter[] { new AtomParameter("INBOX"), new OpenListParameter(),
+						new AtomParameter("\\Seen"), new CloseListParameter(), literal("0123456789") }));
+		assertThat(((LiteralParameter) cmd.getLastParameter()).content(), instanceOf(CompositeByteBuf.class));
+		assertThat(cmd.partial(), equalTo(false));
+		assertThat(channel.finish(), equalTo(false));
+	}
+
+	@Test
+	public void testStreamedLiterals() {
+		EmbeddedChannel channel = new EmbeddedChannel(new ImapCommandDecoder(STREAMING),
+				new ImapLiteralAggregator(1024));
+
+		assertThat(channel.writeInbound(buffer("A2 LOGIN {4}\r\nuser {8}\r\npass")), equalTo(false));
+		assertThat(channel.writeInbound(buffer("word\r\n")), equalTo(true));
+		assertThat(channel.readInbound(), new ImapCommandMatcher("A2", "LOGIN",
+				new CommandParameter[] { literal("user"), literal("password") }));
+	}
+
+	@Test
+	public void testChunkedLiteral() {
+		EmbeddedChannel channel = new EmbeddedChannel(new ImapCommandDecoder(), new ImapLiteralAggregator(1024));
+
+		channel.writeInbound(buffer("A3 LOGIN {4}\r\nus"));
+		channel.writeInbound(buffer("er \"pw\"\r\n"));
+		assertThat(channel.readInbound(), new ImapCommandMatcher("A3", "LOGIN",
+				new CommandParameter[] { literal("user"), new QuotedStringParameter("pw") }));
+	}
+
+	@Test
+	public void testStreamedResponse() {
+		EmbeddedChannel channel = new EmbeddedChannel(new ImapResponseDecoder(STREAMING),
+				new ImapLiteralAggregator(1024));
+
+		channel.writeInbound(buffer("* 12 FETCH (BODY[] {5}\r\nhel"));
+		channel.writeInbound(buffer("lo UID 4827)\r\nA4 OK done\r\n"));
+
+		ImapResponse response = channel.readInbound();
+		assertThat(response, equalTo(new ImapResponse.MessageStatusResponse(12, "FETCH", null)));
+		assertThat(response.getParameters(),
+				equalTo(Arrays.asList(new OpenListParameter(), new AtomParameter("BODY[]"), literal("hello"),
+						new AtomParameter("UID"), new NumberParameter(4827), new CloseListParameter())));
+		assertThat(channel.readInbound(), equalTo(new ImapResponse.Ok("A4", null, "done")));
+	}
+
+	@Test
+	public void testOversizedLiteralFails() {
+		EmbeddedChannel channel = new EmbeddedChannel(new ImapCommandDecoder(STREAMING),
+				new ImapLiteralAggregator(4));
+
+		try {
+			channel.writeInbound(buffer("A5 APPEND INBOX {10}\r\n01234"));
+			fail();
+		} catch (TooLongFrameException expected) {
+		}
+
+		channel.writeInbound(buffer("56789\r\nA6 LOGIN {4}\r\nuser \"pw\"\r\n"));
+		assertThat(channel.readInbound(), new ImapCommandMatcher("A6", "LOGIN",
+				new CommandParameter[] { literal("user"), new QuotedStringParameter("pw") }));
+		assertThat(channel.readInbound(), nullValue());
+	}
+
+	@Test
+	public void testOversizedLiteralPassedThrough() {
+		EmbeddedChannel channel = new EmbeddedChannel(new ImapCommandDecoder(STREAMING),
+				new ImapLiteralAggregator(4, true));
+
+		channel.writeInbound(buffer("A7 LOGIN {4}\r\nuser {8}\r\npass"));
+		channel.writeInbound(buffer("word\r\n"));
+
+		assertThat(channel.readInbound(),
+				new ImapCommandMatcher("A7", "LOGIN", new CommandParameter[] { literal("user"),
+						new LiteralParameter(Unpooled.EMPTY_BUFFER, 8, false) }));
+		ImapLiteralContent content = channel.readInbound();
+		assertThat(content.content().toString(Charset.defaultCharset()), equalTo("pass"));
+		content.release();
+		LastImapLiteralContent last = channel.readInbound();
+		assertThat(last.content().toString(Charset.defaultCharset()), equalTo("word"));
+		assertThat(last.partial(), equalTo(false));
+		last.release();
+		assertThat(channel.readInbound(), nullValue());
+	}
+
+	private static LiteralParameter literal(String value) {
+		return new LiteralParameter(buffer(value), value.length(), false);
+	}
+
+	private static io.netty.buffer.ByteBuf buffer(String value) {
+		return Unpooled.copiedBuffer(value, Charset.defaultCharset());
+	}
+}
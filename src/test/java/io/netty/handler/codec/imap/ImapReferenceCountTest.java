@@ -0,0 +1,244 @@
+/*
+ * Copyright 2016 Laurent Belmonte <laurent.belmonte@gmail.com>
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.imap;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.nio.charset.Charset;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.ResourceLeakDetector;
+
+public class ImapReferenceCountTest {
+
+	private static ResourceLeakDetector.Level level;
+
+	@BeforeClass
+	public static void paranoid() {
+		level = ResourceLeakDetector.getLevel();
+		ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.PARANOID);
+	}
+
+	@AfterClass
+	public static void restore() {
+		ResourceLeakDetector.setLevel(level);
+	}
+
+	@Test
+	public void testReleaseCopiedLiteral() {
+		EmbeddedChannel channel = channel(new ImapCommandDecoder());
+		channel.writeInbound(buffer("A1 APPEND INBOX {5}\r\nhello\r\n"));
+		ImapCommand cmd = channel.readInbound();
+		ByteBuf literal = ((LiteralParameter) cmd.getLastParameter()).content();
+		assertThat(literal.refCnt(), equalTo(1));
+
+		cmd.retain();
+		assertThat(cmd.release(), equalTo(false));
+		assertThat(literal.refCnt(), equalTo(1));
+		assertThat(cmd.release(), equalTo(true));
+		assertThat(literal.refCnt(), equalTo(0));
+		assertThat(channel.finish(), equalTo(false));
+	}
+
+	@Test
+	public void testReleaseZeroCopyLiteral() {
+		EmbeddedChannel channel = channel(new ImapResponseDecoder(new ImapDecoderConfig().zeroCopyLiterals(true)));
+		ByteBuf in = buffer("* 1 FETCH (BODY[] {5}\r\nhello)\r\n");
+		channel.writeInbound(in.retain());
+		ImapResponse response = channel.readInbound();
+		assertThat(in.refCnt(), equalTo(2));
+
+		ImapResponse duplicate = response.retainedDuplicate();
+		response.release();
+		assertThat(in.refCnt(), equalTo(2));
+		assertThat(duplicate.toString(), equalTo(response.toString()));
+		duplicate.release();
+		assertThat(in.refCnt(), equalTo(1));
+		in.release();
+		assertThat(channel.finish(), equalTo(false));
+	}
+
+	@Test
+	public void testDuplicateStatusResponse() {
+		EmbeddedChannel channel = channel(new ImapResponseDecoder(new ImapDecoderConfig().zeroCopyLiterals(true)));
+		ByteBuf in = buffer("a OK [X {3}\r\nabc] done\r\n");
+		channel.writeInbound(in.retain());
+		ImapResponse.Ok response = channel.readInbound();
+		assertThat(in.refCnt(), equalTo(2));
+
+		ImapResponse.Ok duplicate = response.retainedDuplicate();
+		assertThat(duplicate == response, equalTo(false));
+		assertThat(duplicate, equalTo(response));
+		assertThat(response.refCnt(), equalTo(1));
+		response.release();
+		assertThat(in.refCnt(), equalTo(2));
+		assertThat(duplicate.refCnt(), equalTo(1));
+		duplicate.release();
+		assertThat(in.refCnt(), equalTo(1));
+		in.release();
+		assertThat(channel.finish(), equalTo(false));
+	}
+
+	@Test
+	public void testReleaseAggregatedLiteral() {
+		for (ImapDecoderConfig config : new ImapDecoderConfig[] { new ImapDecoderConfig(),
+				new ImapDecoderConfig().zeroCopyLiterals(true), new ImapDecoderConfig().streamLiterals(true),
+				new ImapDecoderConfig().streamLiterals(true).zeroCopyLiterals(true) }) {
+			EmbeddedChannel channel = channel(new ImapCommandDecoder(config), new ImapLiteralAggregator(1024));
+			ByteBuf first = buffer("A1 APPEND INBOX {10}\r\n01234");
+			ByteBuf second = buffer("56789 {2}\r\nab\r\n");
+			channel.writeInbound(first.retain());
+			channel.writeInbound(second.retain());
+
+			ImapCommand cmd = channel.readInbound();
+			assertThat(cmd.getParameters().size(), equalTo(3));
+			assertThat(cmd.toString(), equalTo("A1 APPEND INBOX {10}\r\n0123456789 {2}\r\nab"));
+			cmd.release();
+			assertThat(first.refCnt(), equalTo(1));
+			assertThat(second.refCnt(), equalTo(1));
+			first.release();
+			second.release();
+			assertThat(channel.finish(), equalTo(false));
+		}
+	}
+
+	@Test
+	public void testReleaseTrailingParameters() {
+		ImapDecoderConfig config = new ImapDecoderConfig().streamLiterals(true).structuredLists(true)
+				.zeroCopyLiterals(true);
+		EmbeddedChannel channel = channel(new ImapCommandDecoder(config));
+		ByteBuf in = buffer("A1 APPEND INBOX {5}\r\nhello (X {2}\r\nab)\r\n");
+		channel.writeInbound(in.retain());
+
+		Object msg;
+		LastImapLiteralContent last = null;
+		while ((msg = channel.readInbound()) != null) {
+			if (msg instanceof LastImapLiteralContent) {
+				last = (LastImapLiteralContent) msg;
+			} else {
+				ReferenceCountUtil.release(msg);
+			}
+		}
+		assertThat(last.trailingParameters().isEmpty(), equalTo(false));
+		assertThat(in.refCnt() > 1, equalTo(true));
+
+		LastImapLiteralContent duplicate = last.retainedDuplicate();
+		last.release();
+		assertThat(in.refCnt() > 1, equalTo(true));
+		duplicate.release();
+		assertThat(in.refCnt(), equalTo(1));
+		in.release();
+		assertThat(channel.finish(), equalTo(false));
+	}
+
+	@Test
+	public void testReleaseOnCloseMidMessage() {
+		for (ImapDecoderConfig config : new ImapDecoderConfig[] { new ImapDecoderConfig(),
+				new ImapDecoderConfig().zeroCopyLiterals(true),
+				new ImapDecoderConfig().zeroCopyLiterals(true).pooledMessages(true) }) {
+			assertReleasedOnClose(new ImapCommandDecoder(config), "a APPEND INBOX {3}\r\nabc");
+			assertReleasedOnClose(new ImapResponseDecoder(config), "* LIST () {3}\r\nabc");
+			assertReleasedOnClose(new ImapResponseDecoder(config), "a OK [X {3}\r\nabc] ");
+		}
+	}
+
+	private static void assertReleasedOnClose(ChannelHandler decoder, String partial) {
+		EmbeddedChannel channel = channel(decoder);
+		ByteBuf in = buffer(partial);
+		channel.writeInbound(in.retain());
+		assertThat(channel.finishAndReleaseAll(), equalTo(false));
+		assertThat(in.refCnt(), equalTo(1));
+		in.release();
+	}
+
+	@Test
+	public void testReleaseForwardedLiteral() {
+		EmbeddedChannel decoder = channel(new ImapCommandDecoder(new ImapDecoderConfig().zeroCopyLiterals(true)));
+		EmbeddedChannel encoder = channel(new ImapCommandEncoder());
+		char[] big = new char[1000];
+		ByteBuf in = buffer("A1 APPEND INBOX {1000}\r\n" + new String(big) + "\r\n");
+		decoder.writeInbound(in.retain());
+
+		encoder.writeOutbound(decoder.<Object> readInbound());
+		assertThat(in.refCnt(), equalTo(2));
+		ByteBuf buf;
+		while ((buf = encoder.readOutbound()) != null) {
+			buf.release();
+		}
+		assertThat(in.refCnt(), equalTo(1));
+		in.release();
+		assertThat(decoder.finish(), equalTo(false));
+		assertThat(encoder.finish(), equalTo(false));
+	}
+
+	@Test
+	public void testPooledMessages() {
+		ImapDecoderConfig config = new ImapDecoderConfig().pooledMessages(true).zeroCopyLiterals(true);
+		EmbeddedChannel channel = channel(new ImapCommandDecoder(config));
+		ByteBuf in = buffer("A1 APPEND INBOX {5}\r\nhello\r\nA2 NOOP\r\n");
+		channel.writeInbound(in.retain());
+
+		ImapCommand first = channel.readInbound();
+		assertThat(first.toString(), equalTo("A1 APPEND INBOX {5}\r\nhello"));
+		ImapCommand second = channel.readInbound();
+		assertThat(second.toString(), equalTo("A2 NOOP"));
+		first.release();
+		assertThat(in.refCnt(), equalTo(1));
+		second.release();
+
+		channel.writeInbound(buffer("A3 SELECT INBOX\r\n"));
+		ImapCommand third = channel.readInbound();
+		assertThat(third == first || third == second, equalTo(true));
+		assertThat(third.refCnt(), equalTo(1));
+		assertThat(third.toString(), equalTo("A3 SELECT INBOX"));
+		third.release();
+		in.release();
+
+		channel = channel(new ImapResponseDecoder(config));
+		channel.writeInbound(buffer("* 1 FETCH (UID 4)\r\n"));
+		ImapResponse response = channel.readInbound();
+		response.release();
+		channel.writeInbound(buffer("* 2 FETCH (UID 5)\r\n"));
+		ImapResponse.MessageStatusResponse recycled = channel.readInbound();
+		assertThat(recycled == response, equalTo(true));
+		assertThat(recycled.number, equalTo(2));
+		assertThat(recycled.getParameters().size(), equalTo(4));
+		recycled.release();
+		assertThat(channel.finish(), equalTo(false));
+	}
+
+	private static EmbeddedChannel channel(ChannelHandler... handlers) {
+		EmbeddedChannel channel = new EmbeddedChannel(handlers);
+		channel.config().setAllocator(PooledByteBufAllocator.DEFAULT);
+		return channel;
+	}
+
+	private static ByteBuf buffer(String s) {
+		ByteBuf buf = PooledByteBufAllocator.DEFAULT.buffer();
+		buf.writeCharSequence(s, Charset.defaultCharset());
+		return buf;
+	}
+
+}
@@ -17,6 +17,7 @@ package io.netty.handler.codec.imap;
 
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
 import java.nio.charset.Charset;
 import java.util.Arrays;
@@ -29,6 +30,7 @@ import org.junit.Test;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.CorruptedFrameException;
 import io.netty.handler.codec.imap.ImapResponse.ResponseCode;
 
 public class ImapResponseDecoderTest {
@@ -51,6 +53,17 @@ public class ImapResponseDecoderTest {
 				match(new ImapResponse.Ok("C00047", new ResponseCode("READ-WRITE", null), "Complete")));
 	}
 
+	@Test
+	public void testUnknownStatusResponse() {
+		try {
+			ImapResponse.StatusResponse.create("A001", null, null, "DONE", "LOGIN Completed");
+			fail();
+		} catch (CorruptedFrameException expected) {
+		}
+		// other tagged responses are not status responses
+		assertThat(testResponse("A001 DONE LOGIN\r\n"), instanceOf(ImapResponse.ServerResponse.class));
+	}
+
 	@Test
 	public void testUntaggedOkResponse() {
 		ImapResponse r = testResponse("* OK [PERMANENTFLAGS (\\Deleted \\Seen \\*)] Limited\r\n");
@@ -65,6 +78,28 @@ public class ImapResponseDecoderTest {
 
 	}
 
+	@Test
+	public void testResponseSplitOnEveryByte() {
+		assertThat(testFragmentedResponse("* OK [PERMANENTFLAGS (\\Deleted \\Seen)] Limited\r\n"),
+				match(new ImapResponse.Ok(null,
+						new ResponseCode("PERMANENTFLAGS",
+								Arrays.asList(new OpenListParameter(), new AtomParameter("\\Deleted"),
+										new AtomParameter("\\Seen"), new CloseListParameter())),
+						"Limited")));
+		assertThat(testFragmentedResponse("A001 OK LOGIN Completed\r\n"),
+				match(new ImapResponse.Ok("A001", null, "LOGIN Completed")));
+
+		ImapResponse r = testFragmentedResponse("* 12 FETCH (FLAGS (\\Seen) UID 304)\r\n");
+		assertThat(r, match(new ImapResponse.MessageStatusResponse(12, "FETCH", null)));
+		assertThat(r.getParameters(),
+				CoreMatchers.equalTo(Arrays.asList(new OpenListParameter(), new AtomParameter("FLAGS"),
+						new OpenListParameter(), new AtomParameter("\\Seen"), new CloseListParameter(),
+						new AtomParameter("UID"), new NumberParameter(304), new CloseListParameter())));
+
+		assertThat(testFragmentedResponse("* SEARCH 3 6 9\r\n"), match(new ImapResponse.ServerResponse("SEARCH",
+				Arrays.asList(new NumberParameter(3), new NumberParameter(6), new NumberParameter(9)))));
+	}
+
 	@Test
 	public void testUntaggedOkResponse2() {
 		ImapResponse r = testResponse(
@@ -142,6 +177,181 @@ public class ImapResponseDecoderTest {
 		assertThat(r, match(new ImapResponse.MessageStatusResponse(5, "RECENT", null)));
 
 		r = testResponse("* 12 FETCH (FLAGS (\\Seen $has_cal) UID 304)\r\n");
+
+		r = testResponse("* 2 FETCH (UID 3000000000 MODSEQ (624140003))\r\n");
+		assertThat(r.getParameters(),
+				CoreMatchers.equalTo(Arrays.asList(new OpenListParameter(), new AtomParameter("UID"),
+						new UnsignedNumberParameter(3000000000L), new AtomParameter("MODSEQ"),
+						new OpenListParameter(), new NumberParameter(624140003), new CloseListParameter(),
+						new CloseListParameter())));
+	}
+
+	@Test
+	public void testStreamedFetchBody() {
+		channel = new EmbeddedChannel(new ImapResponseDecoder(new ImapDecoderConfig().streamLiterals(true)));
+
+		assertThat(channel.writeInbound(Unpooled.copiedBuffer(
+				"* 12 FETCH (UID 4827 BODY[] {5}\r\nhello FLAGS (\\Seen))\r\n", Charset.defaultCharset())),
+				CoreMatchers.equalTo(true));
+		ImapResponse head = channel.readInbound();
+		assertThat(head, match(new ImapResponse.MessageStatusResponse(12, "FETCH", null)));
+		assertThat(head.getParameters(),
+				CoreMatchers.equalTo(Arrays.asList(new OpenListParameter(), new AtomParameter("UID"),
+						new NumberParameter(4827), new AtomParameter("BODY[]"),
+						new LiteralParameter(Unpooled.EMPTY_BUFFER, 5, false))));
+
+		LastImapLiteralContent last = channel.readInbound();
+		assertThat(last.content().toString(Charset.defaultCharset()), CoreMatchers.equalTo("hello"));
+		assertThat(last.trailingParameters(), CoreMatchers.equalTo(Arrays.asList(new AtomParameter("FLAGS"),
+				new OpenListParameter(), new AtomParameter("\\Seen"), new CloseListParameter(),
+				new CloseListParameter())));
+		last.release();
+	}
+
+	@Test
+	public void testStructuredLists() {
+		channel = new EmbeddedChannel(new ImapResponseDecoder(new ImapDecoderConfig().structuredLists(true)));
+
+		String fetch = "* 12 FETCH (UID 4827 FLAGS (\\Seen $Forwarded) BODY[] {5}\r\nhello RFC822.SIZE 44)\r\n";
+		ImapResponse r = testFragmentedResponse(fetch);
+		assertThat(r.getParameters().size(), CoreMatchers.equalTo(1));
+		ListParameter list = (ListParameter) r.getParameters().get(0);
+		assertThat(list.getItems().size(), CoreMatchers.equalTo(8));
+		assertThat(list.get("UID"), CoreMatchers.equalTo(new NumberParameter(4827)));
+		assertThat(list.get("rfc822.size"), CoreMatchers.equalTo(new NumberParameter(44)));
+		assertThat(list.get("FLAGS"), CoreMatchers.equalTo(
+				new ListParameter(Arrays.asList(new AtomParameter("\\Seen"), new AtomParameter("$Forwarded")))));
+		assertThat(((LiteralParameter) list.get("BODY[]")).content().toString(Charset.defaultCharset()),
+				CoreMatchers.equalTo("hello"));
+		assertThat(list.get("ENVELOPE"), CoreMatchers.nullValue());
+
+		ByteBuf buff = Unpooled.buffer();
+		r.write(buff);
+		assertThat(buff.toString(Charset.defaultCharset()) + "\r\n", CoreMatchers.equalTo(fetch));
+		r.release();
+
+		assertThat(testResponse("* OK [PERMANENTFLAGS (\\Deleted \\Seen \\*)] Limited\r\n"),
+				match(new ImapResponse.Ok(null, new ResponseCode("PERMANENTFLAGS",
+						Arrays.asList(new ListParameter(Arrays.asList(new AtomParameter("\\Deleted"),
+								new AtomParameter("\\Seen"), new AtomParameter("\\*"))))), "Limited")));
+	}
+
+	@Test
+	public void testTypedFetch() {
+		channel = new EmbeddedChannel(new ImapResponseDecoder(new ImapDecoderConfig().typedFetch(true)));
+
+		String fetch = "* 12 FETCH (UID 4294967295 FLAGS (\\Seen \\Answered $Forwarded) RFC822.SIZE 44"
+				+ " INTERNALDATE \"17-Jul-1996 02:44:25 -0700\" MODSEQ (624140003)"
+				+ " ENVELOPE (\"Wed, 17 Jul 1996 02:23:25 -0700 (PDT)\" {9}\r\nIMAP4rev1"
+				+ " ((\"Terry Gray\" NIL \"gray\" \"cac.washington.edu\")) NIL NIL NIL NIL NIL NIL"
+				+ " \"<B27397-0100000@cac.washington.edu>\")"
+				+ " BODYSTRUCTURE ((\"TEXT\" \"PLAIN\" (\"CHARSET\" \"US-ASCII\") NIL NIL \"7BIT\" 1152 23)"
+				+ " (\"TEXT\" \"HTML\" NIL NIL NIL \"BASE64\" 4554 73) \"ALTERNATIVE\")"
+				+ " BODY[] {5}\r\nhello)\r\n";
+		FetchResponse r = (FetchResponse) testFragmentedResponse(fetch);
+		assertThat(r.getNumber(), CoreMatchers.equalTo(12));
+		assertThat(r.getUid(), CoreMatchers.equalTo(4294967295L));
+		assertThat(r.getFlags(), CoreMatchers.equalTo(FetchResponse.SEEN | FetchResponse.ANSWERED));
+		assertThat(r.getKeywords().toString(), CoreMatchers.equalTo("[$Forwarded]"));
+		assertThat(r.getSize(), CoreMatchers.equalTo(44L));
+		assertThat(r.getInternalDate().toString(), CoreMatchers.equalTo("1996-07-17T02:44:25-07:00"));
+		assertThat(r.getInternalDateMillis(), CoreMatchers.equalTo(837596665000L));
+		assertThat(r.getModSeq(), CoreMatchers.equalTo(624140003L));
+
+		Envelope envelope = r.getEnvelope();
+		assertThat(envelope.getSubject(), CoreMatchers.equalTo("IMAP4rev1"));
+		assertThat(envelope.getFrom().get(0).getName(), CoreMatchers.equalTo("Terry Gray"));
+		assertThat(envelope.getFrom().get(0).toString(), CoreMatchers.equalTo("gray@cac.washington.edu"));
+		assertThat(envelope.getTo().isEmpty(), CoreMatchers.equalTo(true));
+		assertThat(envelope.getMessageId(), CoreMatchers.equalTo("<B27397-0100000@cac.washington.edu>"));
+
+		BodyStructure body = r.getBodyStructure();
+		assertThat(body.isMultipart(), CoreMatchers.equalTo(true));
+		assertThat(body.getSubtype(), CoreMatchers.equalTo("ALTERNATIVE"));
+		assertThat(body.getParts().size(), CoreMatchers.equalTo(2));
+		assertThat(body.getParts().get(1).getType() + "/" + body.getParts().get(1).getSubtype(),
+				CoreMatchers.equalTo("TEXT/HTML"));
+		assertThat(body.getParts().get(0).getSize(), CoreMatchers.equalTo(1152L));
+
+		assertThat(((LiteralParameter) r.get("BODY[]")).content().toString(Charset.defaultCharset()),
+				CoreMatchers.equalTo("hello"));
+
+		ByteBuf buff = Unpooled.buffer();
+		r.write(buff);
+		assertThat(buff.toString(Charset.defaultCharset()) + "\r\n",
+				CoreMatchers.equalTo(fetch.replace("\\Seen \\Answered", "\\Answered \\Seen")));
+		r.release();
+
+		// section specs holding a list are a single attribute name
+		String sections = "* 13 FETCH (UID 5 BODY[HEADER.FIELDS (FROM SUBJECT)] {5}\r\nhello"
+				+ " BODY[HEADER.FIELDS.NOT (\"X-Spam\" DATE)]<0> \"a\")\r\n";
+		r = (FetchResponse) testFragmentedResponse(sections);
+		assertThat(((LiteralParameter) r.get("BODY[HEADER.FIELDS (FROM SUBJECT)]")).content()
+				.toString(Charset.defaultCharset()), CoreMatchers.equalTo("hello"));
+		assertThat(r.get("BODY[HEADER.FIELDS.NOT (\"X-Spam\" DATE)]<0>"),
+				CoreMatchers.equalTo(new QuotedStringParameter("a")));
+		assertThat(r.getAttributes().getItems().size(), CoreMatchers.equalTo(4));
+		assertThat(r.getUid(), CoreMatchers.equalTo(5L));
+		buff.clear();
+		r.write(buff);
+		assertThat(buff.toString(Charset.defaultCharset()) + "\r\n", CoreMatchers.equalTo(sections));
+		r.release();
+		buff.release();
+
+		// other message status responses are left alone
+		assertThat(testResponse("* 3 EXPUNGE\r\n"),
+				match(new ImapResponse.MessageStatusResponse(3, "EXPUNGE", Arrays.asList())));
+	}
+
+	@Test
+	public void testTypedSearch() {
+		channel = new EmbeddedChannel(new ImapResponseDecoder(new ImapDecoderConfig().typedSearch(true)));
+
+		StringBuilder search = new StringBuilder("* SEARCH");
+		for (long i = 1; i <= 40; i++) {
+			search.append(' ').append(i * 100000000L);
+		}
+		SearchResponse r = (SearchResponse) testFragmentedResponse(search.append("\r\n").toString());
+		assertThat(r.size(), CoreMatchers.equalTo(40));
+		assertThat(r.get(0), CoreMatchers.equalTo(100000000L));
+		assertThat(r.get(39), CoreMatchers.equalTo(4000000000L));
+		ByteBuf buff = Unpooled.buffer();
+		r.write(buff);
+		assertThat(buff.toString(Charset.defaultCharset()) + "\r\n", CoreMatchers.equalTo(search.toString()));
+
+		assertThat(testResponse("* SEARCH\r\n"),
+				match(new SearchResponse(ImapKeyword.SEARCH, new int[0], 0, -1)));
+		assertThat(testResponse("* SORT 5 3 4 (MODSEQ 917162500)\r\n"),
+				match(new SearchResponse(ImapKeyword.SORT, new int[] { 5, 3, 4 }, 3, 917162500L)));
+
+		String esearch = "* ESEARCH (TAG \"A282\") UID MIN 2 ALL 2,10:15,20 COUNT 8 MODSEQ 917162500\r\n";
+		ESearchResponse e = (ESearchResponse) testFragmentedResponse(esearch);
+		assertThat(e.getTag(), CoreMatchers.equalTo("A282"));
+		assertThat(e.isUid(), CoreMatchers.equalTo(true));
+		assertThat(e.getMin(), CoreMatchers.equalTo(2L));
+		assertThat(e.getMax(), CoreMatchers.equalTo(-1L));
+		assertThat(e.getCount(), CoreMatchers.equalTo(8L));
+		assertThat(e.getModSeq(), CoreMatchers.equalTo(917162500L));
+		assertThat(e.getAll().contains(12), CoreMatchers.equalTo(true));
+		buff.clear();
+		e.write(buff);
+		assertThat(buff.toString(Charset.defaultCharset()) + "\r\n", CoreMatchers.equalTo(esearch));
+		e.release();
+
+		ESearchResponse partial = (ESearchResponse) testResponse("* ESEARCH (TAG \"A1\") PARTIAL (1:10 NIL)\r\n");
+		assertThat(partial.getExtensions().get("PARTIAL"),
+				CoreMatchers.equalTo(new ListParameter().add(new AtomParameter("1:10")).add(NilParameter.INSTANCE)));
+		partial.release();
+		assertThat(testResponse("* ESEARCH\r\n"), match(new ESearchResponse()));
+
+		// RFC 7377 correlators are skipped, TAG is read wherever it is
+		ESearchResponse multi = (ESearchResponse) testFragmentedResponse(
+				"* ESEARCH (MAILBOX \"INBOX\" TAG \"A2\" UIDVALIDITY 123) UID COUNT 3\r\n");
+		assertThat(multi.getTag(), CoreMatchers.equalTo("A2"));
+		assertThat(multi.getCount(), CoreMatchers.equalTo(3L));
+		assertThat(multi.getExtensions().getItems().isEmpty(), CoreMatchers.equalTo(true));
+		multi.release();
+		buff.release();
 	}
 
 	@Test
@@ -181,6 +391,13 @@ public class ImapResponseDecoderTest {
 		return CoreMatchers.equalTo(response);
 	}
 
+	private ImapResponse testFragmentedResponse(String command) {
+		for (int i = 0; i < command.length() - 1; i++) {
+			assertThat(testResponse(command.substring(i, i + 1)), CoreMatchers.nullValue());
+		}
+		return testResponse(command.substring(command.length() - 1));
+	}
+
 	private ImapResponse testResponse(String command) {
 
 		ByteBuf buffer = Unpooled.wrappedBuffer((command).getBytes());
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016 Laurent Belmonte <laurent.belmonte@gmail.com>
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.imap;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.FileRegion;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+public class ImapResponseEncoderTest {
+
+	@Test
+	public void testRoundTrip() {
+		char[] big = new char[1000];
+		Arrays.fill(big, 'x');
+		testRoundTrip(new ImapDecoderConfig().zeroCopyLiterals(true), "* 12 FETCH (FLAGS (\\Seen) BODY[] {1000}\r\n"
+				+ new String(big) + " UID 304)\r\n", "A1 OK [READ-WRITE] SELECT completed\r\n");
+		testRoundTrip(new ImapDecoderConfig().streamLiterals(true),
+				"* 12 FETCH (BODY[] {1000}\r\n" + new String(big) + ")\r\n", "* SEARCH 3 6 9\r\n");
+	}
+
+	@Test
+	public void testFileLiteral() throws IOException {
+		File file = File.createTempFile("imap", ".eml");
+		try {
+			Files.write(file.toPath(), "Subject: hello\r\n\r\nworld".getBytes("US-ASCII"));
+			FileLiteralParameter literal = new FileLiteralParameter(file, 9, 5);
+			EmbeddedChannel encoder = new EmbeddedChannel(new ImapResponseEncoder());
+			encoder.writeOutbound(new ImapResponse.MessageStatusResponse(1, "FETCH", Arrays.asList(
+					OpenListParameter.INSTANCE, new AtomParameter("BODY[]"), literal, CloseListParameter.INSTANCE)));
+
+			ByteBuf head = encoder.readOutbound();
+			assertThat(head.toString(Charset.defaultCharset()), equalTo("* 1 FETCH (BODY[] {5}\r\n"));
+			head.release();
+
+			FileRegion region = encoder.readOutbound();
+			ByteArrayOutputStream content = new ByteArrayOutputStream();
+			region.transferTo(Channels.newChannel(content), 0);
+			region.release();
+			assertThat(content.toString("US-ASCII"), equalTo("hello"));
+
+			assertThat(ImapCommandEncoderTest.readOutbound(encoder), equalTo(")\r\n"));
+			assertThat(encoder.finish(), equalTo(false));
+
+			ByteBuf buf = Unpooled.buffer();
+			literal.write(buf);
+			assertThat(buf.toString(Charset.defaultCharset()), equalTo("{5}\r\nhello"));
+			buf.release();
+		} finally {
+			file.delete();
+		}
+	}
+
+	private void testRoundTrip(ImapDecoderConfig config, String... responses) {
+		EmbeddedChannel decoder = new EmbeddedChannel(new ImapResponseDecoder(config));
+		EmbeddedChannel encoder = new EmbeddedChannel(new ImapResponseEncoder());
+		StringBuilder sb = new StringBuilder();
+		for (String response : responses) {
+			decoder.writeInbound(Unpooled.copiedBuffer(response, Charset.defaultCharset()));
+			sb.append(response);
+		}
+		Object msg;
+		while ((msg = decoder.readInbound()) != null) {
+			encoder.writeOutbound(msg);
+		}
+		assertThat(ImapCommandEncoderTest.readOutbound(encoder), equalTo(sb.toString()));
+		assertThat(decoder.finish(), equalTo(false));
+		assertThat(encoder.finish(), equalTo(false));
+	}
+
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2016 Laurent Belmonte <laurent.belmonte@gmail.com>
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.imap;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.imap.ImapTokenizer.Token;
+import io.netty.util.CharsetUtil;
+
+public class ImapTokenizerTest {
+
+	private static final String COMMAND = "A1 APPEND INBOX (\\Seen) {5+}\r\nhello NIL \"a b\" 4294967296\r\n";
+
+	private static final List<String> COMMAND_TOKENS = Arrays.asList("ATOM A1", "ATOM APPEND", "ATOM INBOX",
+			"LIST_START (", "ATOM \\Seen", "LIST_END )", "LITERAL 5+", "LITERAL_DATA hello", "NIL NIL",
+			"QUOTED_STRING a b", "NUMBER 4294967296", "LINE_END");
+
+	@Test
+	public void testCommand() {
+		assertThat(tokens(COMMAND, false), equalTo(COMMAND_TOKENS));
+	}
+
+	@Test
+	public void testCommandSplitOnEveryByte() {
+		assertThat(tokens(COMMAND, true), equalTo(Arrays.asList("ATOM A1", "ATOM APPEND", "ATOM INBOX",
+				"LIST_START (", "ATOM \\Seen", "LIST_END )", "LITERAL 5+", "LITERAL_DATA h", "LITERAL_DATA e",
+				"LITERAL_DATA l", "LITERAL_DATA l", "LITERAL_DATA o", "NIL NIL", "QUOTED_STRING a b",
+				"NUMBER 4294967296", "LINE_END")));
+	}
+
+	@Test
+	public void testStatusResponse() {
+		ImapTokenizer tokenizer = new ImapTokenizer();
+		ByteBuf in = Unpooled.copiedBuffer("A2 OK [UIDNEXT 4392] Predicted next UID\r\n* 3 EXISTS\r\n",
+				CharsetUtil.US_ASCII);
+		List<String> tokens = new ArrayList<>();
+		tokens.add(describe(tokenizer, in, tokenizer.nextToken(in)));
+		tokens.add(describe(tokenizer, in, tokenizer.nextToken(in)));
+		// the caller knows a response code may follow OK
+		in.skipBytes(1);
+		if (in.getByte(in.readerIndex()) == '[') {
+			in.skipBytes(1);
+			tokenizer.startResponseCode();
+		}
+		Token token;
+		while ((token = tokenizer.nextToken(in)) != Token.CODE_END) {
+			tokens.add(describe(tokenizer, in, token));
+		}
+		tokens.add(describe(tokenizer, in, tokenizer.nextText(in)));
+		while ((token = tokenizer.nextToken(in)) != null) {
+			tokens.add(describe(tokenizer, in, token));
+		}
+
+		assertThat(tokens, equalTo(Arrays.asList("ATOM A2", "ATOM OK", "ATOM UIDNEXT", "NUMBER 4392",
+				"TEXT Predicted next UID", "ATOM *", "NUMBER 3", "ATOM EXISTS", "LINE_END")));
+		in.release();
+	}
+
+	private static List<String> tokens(String input, boolean fragmented) {
+		ImapTokenizer tokenizer = new ImapTokenizer();
+		ByteBuf in = Unpooled.buffer();
+		List<String> tokens = new ArrayList<>();
+		byte[] bytes = input.getBytes(CharsetUtil.US_ASCII);
+		int step = fragmented ? 1 : bytes.length;
+		for (int i = 0; i < bytes.length; i += step) {
+			in.writeBytes(bytes, i, step);
+			Token token;
+			while ((token = tokenizer.nextToken(in)) != null) {
+				tokens.add(describe(tokenizer, in, token));
+			}
+		}
+		in.release();
+		return tokens;
+	}
+
+	private static String describe(ImapTokenizer tokenizer, ByteBuf in, Token token) {
+		switch (token) {
+		case NUMBER:
+			return token + " " + tokenizer.number();
+		case LITERAL:
+			return token + " " + tokenizer.number() + (tokenizer.isLiteralPlus() ? "+" : "");
+		case LINE_END:
+		case CODE_END:
+			return token.name();
+		default:
+			return token + " " + in.toString(tokenizer.offset(), tokenizer.length(), CharsetUtil.US_ASCII);
+		}
+	}
+}
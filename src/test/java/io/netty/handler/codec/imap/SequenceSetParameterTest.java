@@ -0,0 +1,78 @@
+/*
+ * Copyright 2016 Laurent Belmonte <laurent.belmonte@gmail.com>
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.imap;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.PrimitiveIterator;
+
+import org.junit.Test;
+
+public class SequenceSetParameterTest {
+
+	@Test
+	public void testParse() {
+		SequenceSetParameter set = SequenceSetParameter.parse("1:500,502,600:*");
+		assertThat(set.toString(), equalTo("1:500,502,600:*"));
+		assertThat(set.rangeCount(), equalTo(3));
+		assertThat(set.contains(1), equalTo(true));
+		assertThat(set.contains(500), equalTo(true));
+		assertThat(set.contains(501), equalTo(false));
+		assertThat(set.contains(502), equalTo(true));
+		assertThat(set.contains(599), equalTo(false));
+		assertThat(set.contains(4000000000L), equalTo(true));
+
+		// ranges are sorted, reversed bounds swapped and overlaps merged
+		assertThat(SequenceSetParameter.parse("9,5:3,1,2,4294967295,7:8").toString(), equalTo("1:5,7:9,*"));
+		assertThat(SequenceSetParameter.parse("*:4").toString(), equalTo("4:*"));
+	}
+
+	@Test
+	public void testInvalid() {
+		for (String invalid : new String[] { "", "0", "1:0", ",1", "1,", "1,,2", "1:", ":1", "1::2", "4294967296",
+				"1:2:3", "1a", "$" }) {
+			assertThat(invalid, SequenceSetParameter.parse(invalid), nullValue());
+		}
+	}
+
+	@Test
+	public void testOf() {
+		assertThat(SequenceSetParameter.of(7, 3, 1, 2, 3, 9, 8, -1).toString(), equalTo("1:3,7:9,*"));
+		assertThat(SequenceSetParameter.of(-2, 5), equalTo(SequenceSetParameter.parse("5,4294967294")));
+
+		BitSet bits = new BitSet();
+		bits.set(1, 501);
+		bits.set(502);
+		bits.set(600, 700);
+		assertThat(SequenceSetParameter.of(bits).toString(), equalTo("1:500,502,600:699"));
+	}
+
+	@Test
+	public void testIterator() {
+		SequenceSetParameter set = SequenceSetParameter.parse("5,1:3");
+		List<Long> values = new ArrayList<>();
+		for (PrimitiveIterator.OfLong it = set.iterator(); it.hasNext();) {
+			values.add(it.nextLong());
+		}
+		assertThat(values.toString(), equalTo("[1, 2, 3, 5]"));
+		assertThat(set.size(), equalTo(4L));
+	}
+}